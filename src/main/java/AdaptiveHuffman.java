@@ -0,0 +1,207 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *  Assignment: Final Compression Project
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: AdaptiveHuffman
+ *  Dependencies: BinaryIn.java BinaryOut.java BitReader.java BitWriter.java
+ *
+ *  ------------- CLI -------------
+ *  This file is not meant to be run from CLI (see SchubsH -a)
+ *
+ * ------------- DESIGN -------------
+ *  Overview
+ *      Adaptive (FGK) Huffman coding for the .ha format. Compressor and
+ *      expander start from the same empty tree and update it the same way
+ *      after every byte, so no frequency table or length is written and the
+ *      input is read only once. Output starts as soon as input arrives and
+ *      memory use is a fixed few KB, whatever the length of the stream.
+ *
+ *  .ha File
+ *      - for each byte, its code in the current tree; a byte seen for the
+ *        first time is sent as the code of the NYT ("not yet transmitted")
+ *        leaf followed by the byte in 9 bits
+ *      - the end of the stream: the NYT code followed by EOF (256) in 9 bits
+ *      - 0 bits to pad the last byte
+ *
+ *  Process
+ *      The tree keeps the sibling property: nodes are numbered so that
+ *      weights never decrease with the number, and siblings are neighbours.
+ *      The root has the highest number. To count a byte, walk from its leaf to
+ *      the root; at each node first swap it with the highest numbered node of
+ *      the same weight (unless that is its parent), then add 1 to its weight.
+ *      A new byte splits the NYT leaf into a new NYT leaf and a leaf for the
+ *      byte, both numbered just below the old NYT.
+ *
+ *      The tree is a handful of int arrays indexed by node number; a swap
+ *      exchanges the contents of two numbers and fixes the pointers into them.
+ *
+ *  Trade-Offs
+ *      Every byte costs a walk up the tree and a walk down it, so this is much
+ *      slower than the static codes of SchubsH, and its codes are slightly
+ *      longer while the tree is still learning. It is meant for pipes and
+ *      streams whose length is not known up front. Whenever the input pauses
+ *      the whole bytes produced so far are flushed, so a reader downstream
+ *      never waits on a half full buffer.
+ */
+
+import java.util.Arrays;
+
+import sedgewick.*;
+
+public class AdaptiveHuffman {
+
+    private static final int R = 256;                // alphabet size of extended ASCII
+    private static final int EOF = R;                // sent after NYT to end the stream
+    private static final int SYMBOL_BITS = 9;        // bits of a byte (or EOF) after NYT
+    private static final int NODES = 2 * (R + 1) - 1; // 256 byte leaves, NYT, internal nodes
+    private static final int ROOT = NODES - 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final int[] weight = new int[NODES];
+    private final int[] parent = new int[NODES];
+    private final int[] left = new int[NODES];      // -1 for leaves
+    private final int[] right = new int[NODES];
+    private final int[] symbol = new int[NODES];    // -1 for internal nodes and NYT
+    private final int[] leaf = new int[R];          // node of each byte, -1 if not seen yet
+    private final int[] path = new int[NODES];      // scratch for encode
+    private int nyt = ROOT;
+
+    public AdaptiveHuffman() {
+        Arrays.fill(leaf, -1);
+        parent[ROOT] = -1;
+        left[ROOT] = right[ROOT] = -1;
+        symbol[ROOT] = -1;
+    }
+
+    // -------------------------- STREAMS -------------------------- //
+
+    // compress everything in "in" to "out", flushing whenever the input pauses
+    public static void compress(BinaryIn in, BinaryOut out) {
+        AdaptiveHuffman tree = new AdaptiveHuffman();
+        BitWriter bits = new BitWriter(out);
+        byte[] buf = new byte[BUFFER_SIZE];
+        int n;
+        while ((n = in.read(buf, 0, BUFFER_SIZE)) > 0) {
+            for (int i = 0; i < n; i++)
+                tree.encode(bits, buf[i] & 0xff);
+            // a read returns what has arrived, so this is all there is for now
+            bits.flushBytes();
+        }
+        tree.encode(bits, EOF);
+        bits.flush();
+    }
+
+    // expand a .ha stream from "in" to "out"
+    public static void expand(BinaryIn in, BinaryOut out) {
+        AdaptiveHuffman tree = new AdaptiveHuffman();
+        BitReader bits = new BitReader(in);
+        byte[] buf = new byte[BUFFER_SIZE];
+        int n = 0;
+        while (true) {
+            int c = tree.decode(bits);
+            if (c == EOF) break;
+            buf[n++] = (byte) c;
+            if (n == BUFFER_SIZE) {
+                out.write(buf, 0, n);
+                n = 0;
+            }
+        }
+        out.write(buf, 0, n);
+        out.flush();
+    }
+
+    // -------------------------- CODING -------------------------- //
+
+    // write the code of c (a byte or EOF) and count it
+    public void encode(BitWriter bits, int c) {
+        int node = c == EOF ? nyt : leaf[c];
+        if (node == -1) node = nyt;
+
+        // the code is the path from the root, found leaf first
+        int depth = 0;
+        for (int x = node; x != ROOT; x = parent[x])
+            path[depth++] = x == right[parent[x]] ? 1 : 0;
+        while (depth > 0)
+            bits.write(path[--depth], 1);
+
+        if (node == nyt) bits.write(c, SYMBOL_BITS);
+        if (c != EOF) update(c);
+    }
+
+    // read one code, count it and return its byte (or EOF)
+    public int decode(BitReader bits) {
+        int node = ROOT;
+        while (left[node] != -1)
+            node = bits.readBits(1) == 1 ? right[node] : left[node];
+
+        int c = node == nyt ? bits.readBits(SYMBOL_BITS) : symbol[node];
+        if (c == EOF) return EOF;
+        if (c > EOF || (node == nyt && leaf[c] != -1))
+            throw new RuntimeException("Invalid adaptive Huffman code in input");
+        update(c);
+        return c;
+    }
+
+    // -------------------------- TREE -------------------------- //
+
+    // add one to the count of byte c, keeping the sibling property
+    private void update(int c) {
+        int node = leaf[c];
+        if (node == -1) {
+            // split NYT: new NYT on the left, the new leaf on the right
+            int old = nyt;
+            nyt = old - 2;
+            node = old - 1;
+            left[old] = nyt;
+            right[old] = node;
+            symbol[old] = -1;
+            for (int x = nyt; x <= node; x++) {
+                weight[x] = 0;
+                parent[x] = old;
+                left[x] = right[x] = -1;
+            }
+            symbol[nyt] = -1;
+            symbol[node] = c;
+            leaf[c] = node;
+        }
+
+        while (node != -1) {
+            int leader = node;
+            while (leader < ROOT && weight[leader + 1] == weight[node])
+                leader++;
+            if (leader != node && leader != parent[node]) {
+                swap(node, leader);
+                node = leader;
+            }
+            weight[node]++;
+            node = parent[node];
+        }
+    }
+
+    // exchange the subtrees numbered a and b (equal weights, neither is an ancestor of the other)
+    private void swap(int a, int b) {
+        int t = left[a]; left[a] = left[b]; left[b] = t;
+        t = right[a]; right[a] = right[b]; right[b] = t;
+        t = symbol[a]; symbol[a] = symbol[b]; symbol[b] = t;
+        relink(a);
+        relink(b);
+    }
+
+    // point the children (or the leaf table) of node x back at x
+    private void relink(int x) {
+        if (left[x] != -1) {
+            parent[left[x]] = x;
+            parent[right[x]] = x;
+        }
+        else if (symbol[x] != -1) {
+            leaf[symbol[x]] = x;
+        }
+        else {
+            nyt = x;
+        }
+    }
+}
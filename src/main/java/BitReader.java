@@ -0,0 +1,136 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *  Assignment: Final Compression Project
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: BitReader
+ *  Dependencies: BinaryIn.java
+ *
+ *  ------------- CLI -------------
+ *  This file is not meant to be run from CLI
+ *
+ * ------------- DESIGN -------------
+ *  Overview
+ *      Reads bits most significant bit first, the same order BinaryIn uses, but
+ *      keeps up to 64 of them in a long so a decoder can look at several bits
+ *      at once (peek) and then throw away only the ones it used (consume).
+ *
+ *  Process
+ *      Bytes are pulled from the BinaryIn in large chunks into a byte[] and
+ *      shifted into the accumulator whenever it drops below 57 bits. Past the
+ *      end of the stream the accumulator is padded with 0 bits, which matches
+ *      the padding BinaryOut writes, so a decoder that peeks past the last
+ *      real bit never has to special case the end of the file.
+ *
+ *      A BitReader can also read straight from a byte[] (a block that was
+ *      already read into memory), which is how several streams are decoded
+ *      side by side.
+ *
+ *  Note
+ *      The BinaryIn must be byte-aligned when the BitReader is created and must
+ *      not be read from directly afterwards (the BitReader reads ahead).
+ */
+
+import sedgewick.*;
+
+public class BitReader {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final BinaryIn in;  // null when reading from an array
+    private byte[] buf;
+    private int pos;            // next byte in buf
+    private int lim;            // end of the valid bytes in buf
+    private boolean eof;        // no more bytes after buf[lim - 1]
+
+    private long bits;          // the low "count" bits are unread, oldest bit highest
+    private int count;          // number of valid bits in "bits"
+    private int padding;        // number of 0 bits added past the end of the stream
+
+    public BitReader(BinaryIn in) {
+        this.in = in;
+        this.buf = new byte[BUFFER_SIZE];
+        refill();
+    }
+
+    // read the bits of data[off..off+len) (no BinaryIn, no copy)
+    public BitReader(byte[] data, int off, int len) {
+        this.in = null;
+        this.buf = data;
+        this.pos = off;
+        this.lim = off + len;
+        this.eof = true;
+        refill();
+    }
+
+    // top the accumulator up to at least 57 bits
+    private void refill() {
+        while (count <= 56) {
+            if (pos == lim) {
+                if (!eof) {
+                    int n = in.read(buf, 0, BUFFER_SIZE);
+                    if (n <= 0) eof = true;
+                    else { pos = 0; lim = n; }
+                }
+                if (eof) {
+                    bits <<= 8;
+                    count += 8;
+                    padding += 8;
+                    continue;
+                }
+            }
+            bits = (bits << 8) | (buf[pos++] & 0xff);
+            count += 8;
+        }
+    }
+
+    // look at the next n (0 to 32) bits without consuming them
+    public int peek(int n) {
+        if (count < n) refill();
+        return (int) ((bits >>> (count - n)) & ((1L << n) - 1));
+    }
+
+    // throw away n bits that were looked at with peek
+    public void consume(int n) {
+        count -= n;
+    }
+
+    // read the next n (0 to 32) bits as an int
+    public int readBits(int n) {
+        int x = peek(n);
+        count -= n;
+        return x;
+    }
+
+    public boolean readBoolean() {
+        return readBits(1) == 1;
+    }
+
+    public char readChar() {
+        return (char) readBits(8);
+    }
+
+    public int readInt() {
+        return readBits(32);
+    }
+
+    public long readLong() {
+        long hi = readBits(32) & 0xffffffffL;
+        long lo = readBits(32) & 0xffffffffL;
+        return (hi << 32) | lo;
+    }
+
+    // skip to the next byte boundary of the underlying stream
+    public void alignToByte() {
+        count -= count & 7;
+    }
+
+    // true once every real bit of the stream has been read (only padding is left)
+    public boolean isEmpty() {
+        if (count <= padding) refill();
+        return eof && pos == lim && count <= padding;
+    }
+}
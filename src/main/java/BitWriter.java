@@ -0,0 +1,172 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *  Assignment: Final Compression Project
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: BitWriter
+ *  Dependencies: BinaryOut.java
+ *
+ *  ------------- CLI -------------
+ *  This file is not meant to be run from CLI
+ *
+ * ------------- DESIGN -------------
+ *  Overview
+ *      Writes bits most significant bit first, the same order (and the same
+ *      0 padding at the end) as BinaryOut, but without a method call per bit.
+ *
+ *  Process
+ *      Bits are shifted into a long. Every time 32 or more are waiting, the
+ *      oldest 32 are copied into a byte[] as four bytes, and the byte[] is
+ *      handed to the BinaryOut in one call when it is nearly full.
+ *
+ *      Huffman codes can be packed into one int each, (code << 6) | length,
+ *      so the encoder loop is one table lookup and one writeCode per symbol
+ *      with no allocation (see pack()).
+ *
+ *  Note
+ *      The BinaryOut must be byte-aligned when the BitWriter is created and
+ *      must not be written to directly until flush() has been called.
+ */
+
+import sedgewick.*;
+
+public class BitWriter {
+
+    // longest code pack() can fit next to its 6 bit length
+    public static final int MAX_PACKED_LENGTH = 26;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final BinaryOut out;
+    private final byte[] buf = new byte[BUFFER_SIZE];
+    private int pos;            // next free byte in buf
+
+    private long bits;          // the low "count" bits are waiting to be written
+    private int count;          // number of waiting bits (always < 32 between calls)
+    private long flushed;       // bytes already handed to the BinaryOut
+
+    public BitWriter(BinaryOut out) {
+        this.out = out;
+    }
+
+    // pack each code as (code << 6) | length, or null if a code is too long
+    public static int[] pack(int[] length, long[] code) {
+        int[] packed = new int[length.length];
+        for (int s = 0; s < length.length; s++) {
+            if (length[s] > MAX_PACKED_LENGTH) return null;
+            packed[s] = (int) (code[s] << 6) | length[s];
+        }
+        return packed;
+    }
+
+    // write a code packed by pack()
+    public void writeCode(int packed) {
+        int n = packed & 63;
+        bits = (bits << n) | (packed >>> 6);
+        count += n;
+        if (count >= 32) drain();
+    }
+
+    // write the low n (0 to 32) bits of x
+    public void write(int x, int n) {
+        bits = (bits << n) | (x & ((1L << n) - 1));
+        count += n;
+        if (count >= 32) drain();
+    }
+
+    // write a code of up to 64 bits
+    public void writeCode(long code, int n) {
+        if (n > 32) {
+            write((int) (code >>> 32), n - 32);
+            n = 32;
+        }
+        write((int) code, n);
+    }
+
+    public void write(boolean bit) {
+        write(bit ? 1 : 0, 1);
+    }
+
+    public void write(char x) {
+        if (x >= 256) throw new RuntimeException("Illegal 8-bit char = " + x);
+        write(x, 8);
+    }
+
+    public void write(int x) {
+        write(x, 32);
+    }
+
+    public void write(long x) {
+        write((int) (x >>> 32), 32);
+        write((int) x, 32);
+    }
+
+    // append the first n bits of src (most significant bit of src[0] first),
+    // which need not start or end on a byte boundary of this writer
+    public void writeBits(byte[] src, long n) {
+        int words = (int) (n >>> 5);
+        for (int i = 0; i < words; i++) {
+            int j = i << 2;
+            write(((src[j] & 0xff) << 24) | ((src[j + 1] & 0xff) << 16)
+                | ((src[j + 2] & 0xff) << 8) | (src[j + 3] & 0xff), 32);
+        }
+        int rest = (int) (n & 31);
+        for (int j = words << 2; rest > 0; j++) {
+            int r = Math.min(8, rest);
+            write((src[j] & 0xff) >>> (8 - r), r);
+            rest -= r;
+        }
+    }
+
+    // number of bits written so far, not counting the padding flush() adds
+    public long bitsWritten() {
+        return (flushed + pos) * 8 + count;
+    }
+
+    // move the oldest 32 waiting bits into the byte buffer
+    private void drain() {
+        count -= 32;
+        int word = (int) (bits >>> count);
+        if (pos > BUFFER_SIZE - 4) flushBuffer();
+        buf[pos++] = (byte) (word >>> 24);
+        buf[pos++] = (byte) (word >>> 16);
+        buf[pos++] = (byte) (word >>> 8);
+        buf[pos++] = (byte) word;
+    }
+
+    private void flushBuffer() {
+        out.write(buf, 0, pos);
+        flushed += pos;
+        pos = 0;
+    }
+
+    // hand every whole byte written so far to the BinaryOut and flush it, but
+    // keep the bits of an unfinished byte (no padding, writing can go on)
+    public void flushBytes() {
+        if (pos > BUFFER_SIZE - 4) flushBuffer();
+        while (count >= 8) {
+            count -= 8;
+            buf[pos++] = (byte) (bits >>> count);
+        }
+        flushBuffer();
+        out.flush();
+    }
+
+    // write out every waiting bit, padding the last byte with 0s
+    public void flush() {
+        if (pos > BUFFER_SIZE - 4) flushBuffer();
+        while (count >= 8) {
+            count -= 8;
+            buf[pos++] = (byte) (bits >>> count);
+        }
+        if (count > 0) {
+            buf[pos++] = (byte) (bits << (8 - count));
+            count = 0;
+        }
+        flushBuffer();
+        out.flush();
+    }
+}
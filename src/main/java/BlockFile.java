@@ -0,0 +1,221 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *  Assignment: Final Compression Project
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: BlockFile
+ *  Dependencies: BinaryIn.java BinaryOut.java
+ *
+ *  ------------- CLI -------------
+ *  This file is not meant to be run from CLI (see HuffmanBlocks, LzwBlocks
+ *  and BwtBlocks)
+ *
+ * ------------- DESIGN -------------
+ *  Overview
+ *      The container the block layouts share. The input is cut into fixed
+ *      size blocks (the last one may be shorter), and a Coder compresses and
+ *      expands each one on its own, so the blocks can be worked on by as many
+ *      threads as there are cores. What a block holds is up to the Coder;
+ *      the container only knows how long each one is.
+ *
+ *  Layout
+ *      - the format's own header bytes (layout, code width, ...), if any
+ *      - (int) block size
+ *      - (long) number of bytes in original uncompressed message
+ *      - for each block
+ *          - (int) number of compressed bytes c that follow
+ *          - c bytes made by the Coder
+ *      - index: (long) file offset of each block's (int) size
+ *      - (long) file offset of the index
+ *
+ *  Process
+ *      Compression reads one block at a time and hands it to a thread pool;
+ *      finished blocks are written in input order. At most 2 blocks per thread
+ *      are in memory at once, so memory does not grow with the file.
+ *
+ *      Expansion reads the compressed blocks in order (each one says how long
+ *      it is) and decodes them on the same kind of thread pool. The index at
+ *      the end is not needed for that; it lets readBlock() decode any single
+ *      block without reading the ones before it.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import sedgewick.*;
+
+public class BlockFile {
+
+    // what a format does to one block; called from several threads at once
+    public interface Coder {
+
+        // compress data[0..n) into a self-contained block
+        byte[] compress(byte[] data, int n);
+
+        // expand a block made by compress back into its n bytes
+        byte[] expand(byte[] block, int n);
+    }
+
+    // -------------------------- WHOLE FILE -------------------------- //
+
+    // compress a file block by block on a pool of threads, after the format's
+    // header bytes; an empty file is left empty
+    public static void compress(String filepath, BinaryOut out, byte[] header, int blockSize,
+                                final Coder coder, int threads) {
+        BinaryIn in = new BinaryIn(filepath);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            long size = new File(filepath).length();
+            if (size == 0 && in.isEmpty()) return;
+
+            out.write(header, 0, header.length);
+            out.write(blockSize);
+            out.write(size);
+
+            long offset = header.length + 4 + 8;
+            long[] index = new long[blockCount(size, blockSize)];
+            int next = 0;
+            long read = 0;
+
+            ArrayDeque<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>();
+            boolean done = false;
+            while (true) {
+                // keep every thread busy while the oldest block is written
+                while (!done && pending.size() < 2 * threads) {
+                    // never past the size in the header (the index has no room)
+                    final byte[] data = new byte[(int) Math.min(blockSize, size - read)];
+                    final int n = readFully(in, data);
+                    read += n;
+                    done = n < data.length || read == size;
+                    if (n == 0) break;
+                    pending.add(pool.submit(new Callable<byte[]>() {
+                        public byte[] call() {
+                            return coder.compress(data, n);
+                        }
+                    }));
+                }
+                if (pending.isEmpty()) break;
+
+                byte[] block = get(pending.poll());
+                index[next++] = offset;
+                out.write(block.length);
+                out.write(block, 0, block.length);
+                offset += 4 + block.length;
+            }
+
+            // a file that shrank ends early, one that grew has bytes left
+            if (read != size || next != index.length || !in.isEmpty())
+                throw new RuntimeException(filepath + " changed while it was being compressed");
+
+            // trailing index
+            for (int i = 0; i < index.length; i++)
+                out.write(index[i]);
+            out.write(offset);
+            out.flush();
+        } finally {
+            pool.shutdown();
+            in.close();
+        }
+    }
+
+    // expand a block file (after the format's header bytes) on a pool of threads
+    public static void expand(BinaryIn in, BinaryOut out, final Coder coder, int threads) {
+        int blockSize = in.readInt();
+        long size = in.readLong();
+        if (blockSize <= 0 || size < 0)
+            throw new RuntimeException("Invalid block layout header");
+        int blocks = blockCount(size, blockSize);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            ArrayDeque<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>();
+            int next = 0;
+            while (next < blocks || !pending.isEmpty()) {
+                while (next < blocks && pending.size() < 2 * threads) {
+                    final byte[] block = new byte[in.readInt()];
+                    if (readFully(in, block) != block.length)
+                        throw new RuntimeException("Truncated block " + next);
+                    final int n = (int) Math.min(blockSize, size - (long) next * blockSize);
+                    pending.add(pool.submit(new Callable<byte[]>() {
+                        public byte[] call() {
+                            return coder.expand(block, n);
+                        }
+                    }));
+                    next++;
+                }
+
+                byte[] data = get(pending.poll());
+                out.write(data, 0, data.length);
+            }
+            out.flush();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // -------------------------- RANDOM ACCESS -------------------------- //
+
+    // number of blocks in a block file whose block size is next in "file"
+    public static int blockCount(RandomAccessFile file) throws IOException {
+        int blockSize = file.readInt();
+        return blockCount(file.readLong(), blockSize);
+    }
+
+    // expand block i of the block file "filepath" without reading the blocks
+    // before it; its block size is next in "file"
+    public static byte[] readBlock(RandomAccessFile file, String filepath, int i, Coder coder) throws IOException {
+        int blockSize = file.readInt();
+        long size = file.readLong();
+        if (i < 0 || i >= blockCount(size, blockSize))
+            throw new RuntimeException("No block " + i + " in " + filepath);
+
+        // last long is the index offset, the index holds each block's offset
+        file.seek(file.length() - 8);
+        file.seek(file.readLong() + 8L * i);
+        file.seek(file.readLong());
+
+        byte[] block = new byte[file.readInt()];
+        file.readFully(block);
+        int n = (int) Math.min(blockSize, size - (long) i * blockSize);
+        return coder.expand(block, n);
+    }
+
+    // -------------------------- HELPERS -------------------------- //
+
+    private static int blockCount(long size, int blockSize) {
+        return (int) ((size + blockSize - 1) / blockSize);
+    }
+
+    // fill b from in, returning how many bytes were read (less only at the end)
+    private static int readFully(BinaryIn in, byte[] b) {
+        int n = 0;
+        while (n < b.length) {
+            int r = in.read(b, n, b.length - n);
+            if (r <= 0) break;
+            n += r;
+        }
+        return n;
+    }
+
+    private static byte[] get(Future<byte[]> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *  Assignment: Final Compression Project
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: Bwt
+ *  Dependencies: SaIs.java
+ *
+ *  ------------- CLI -------------
+ *  This file is not meant to be run from CLI (see SchubsB)
+ *
+ * ------------- DESIGN -------------
+ *  Overview
+ *      The Burrows-Wheeler transform of a block: sort every suffix of the
+ *      block and write down the byte before each one. Bytes that come before
+ *      similar contexts end up next to each other ("th" is followed by "e"
+ *      wherever it is in the text), so the output has long runs of a few
+ *      bytes, which MTF and Huffman coding then compress (see BwtBlocks).
+ *
+ *  Process
+ *      With a sentinel "$" after the block, smaller than every byte, the
+ *      sorted suffixes are "$" and then the suffix array SaIs builds. The
+ *      output is the byte before each of them in that order, except the one
+ *      before the whole block, which would be "$": that is left out and its
+ *      row (the primary index) is kept instead.
+ *
+ *      The inverse walks the block backwards. Row 0 is the suffix "$", whose
+ *      byte before is the block's last byte. The k-th occurrence of a byte c
+ *      in the output is also the k-th suffix starting with c, so counting
+ *      gives the row of the suffix that starts with that byte (the LF
+ *      mapping), and its byte before is the next one back, until the primary
+ *      row.
+ *
+ *      Each step back depends on the one before, and each is a cache miss
+ *      on a large block, so the compressor also keeps the rows of the
+ *      suffixes at k * n / CHAINS (k = 1 to CHAINS - 1). The inverse walks
+ *      back from each of them, and from row 0, at the same time, so the
+ *      CHAINS lookups of a step do not wait for each other (like the
+ *      interleaved streams of HuffmanBlocks); each chain stops where the
+ *      next one started.
+ *
+ *  Trade-Offs
+ *      The inverse still jumps around the block, one int (the next row and
+ *      the byte) per step, so expanding is slower than LZ77.
+ */
+
+public class Bwt {
+
+    // largest block inverse() takes, a row and a byte sharing an int
+    public static final int MAX_BLOCK = (1 << 24) - 1;
+
+    // walks the inverse makes at once, and rows kept per block
+    public static final int CHAINS = 4;
+
+    private static final int R = 256;
+
+    // transform data[0..n) into out[0..n); returns the rows of the suffixes
+    // at k * n / CHAINS, the first being the primary index (1 to n)
+    public static int[] transform(byte[] data, int n, byte[] out) {
+        int[] sa = SaIs.sort(data, n);
+
+        // row 0 is the sentinel (sa[0] == n), whose byte before is the last one
+        for (int row = 0, k = 0; row <= n; row++) {
+            int pos = sa[row];
+            if (pos != 0) out[k++] = data[pos - 1];
+        }
+
+        int[] rows = new int[CHAINS];
+        for (int row = 1; row <= n; row++)
+            for (int j = 0; j < CHAINS; j++)
+                if (sa[row] == start(j, n)) rows[j] = row;
+        return rows;
+    }
+
+    // undo transform: the n bytes whose transform is bwt[0..n) with these rows
+    public static byte[] inverse(byte[] bwt, int n, int[] rows) {
+        if (n > MAX_BLOCK)
+            throw new RuntimeException("BWT block too large: " + n);
+        for (int j = 0; j < CHAINS; j++)
+            if (rows[j] < 1 || rows[j] > n)
+                throw new RuntimeException("Invalid BWT row " + rows[j]);
+        int primary = rows[0];
+
+        // first row of the suffixes starting with each byte, after the sentinel's
+        int[] next = new int[R];
+        for (int i = 0; i < n; i++)
+            next[bwt[i] & 0xff]++;
+        for (int c = 0, sum = 1; c < R; c++) {
+            int count = next[c];
+            next[c] = sum;
+            sum += count;
+        }
+
+        // lf[row]: the row of the suffix one byte earlier, above the row's
+        // byte, so each step back is one lookup
+        int[] lf = new int[n + 1];
+        for (int row = 0, k = 0; row <= n; row++) {
+            if (row == primary) continue;
+            int c = bwt[k++] & 0xff;
+            lf[row] = next[c]++ << 8 | c;
+        }
+
+        // chain j writes data[start(j)..start(j + 1)) backwards, from the row of
+        // the suffix at start(j + 1) (row 0 for the last chain)
+        byte[] data = new byte[n];
+        int[] row = new int[CHAINS];
+        int[] pos = new int[CHAINS];
+        int shortest = n;
+        for (int j = 0; j < CHAINS; j++) {
+            row[j] = j + 1 < CHAINS ? rows[j + 1] : 0;
+            pos[j] = start(j + 1, n);
+            shortest = Math.min(shortest, pos[j] - start(j, n));
+        }
+        for (int step = 0; step < shortest; step++) {
+            for (int j = 0; j < CHAINS; j++) {
+                int lookup = lf[row[j]];
+                data[--pos[j]] = (byte) lookup;
+                row[j] = lookup >>> 8;
+            }
+        }
+        for (int j = 0; j < CHAINS; j++) {
+            while (pos[j] > start(j, n)) {
+                int lookup = lf[row[j]];
+                data[--pos[j]] = (byte) lookup;
+                row[j] = lookup >>> 8;
+            }
+            if (row[j] != rows[j])
+                throw new RuntimeException("Corrupt BWT block");
+        }
+        return data;
+    }
+
+    // where chain j starts in a block of n bytes (chain CHAINS is the end)
+    private static int start(int j, int n) {
+        return (int) ((long) j * n / CHAINS);
+    }
+}
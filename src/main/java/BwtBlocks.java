@@ -0,0 +1,244 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *  Assignment: Final Compression Project
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: BwtBlocks
+ *  Dependencies: BinaryIn.java BinaryOut.java BitReader.java BitWriter.java
+ *                BlockFile.java Bwt.java CanonicalHuffman.java HuffmanLengths.java
+ *
+ *  ------------- CLI -------------
+ *  This file is not meant to be run from CLI (see SchubsB)
+ *
+ * ------------- DESIGN -------------
+ *  Overview
+ *      The .bw format, the bzip2 pipeline: every block of BLOCK_SIZE bytes
+ *      goes through the Burrows-Wheeler transform (see Bwt), move-to-front,
+ *      a run length code for zeros and a canonical Huffman code of its own.
+ *      The blocks do not depend on each other, so they are compressed and
+ *      expanded on all cores.
+ *
+ *  Process
+ *      Move-to-front replaces each byte by its position in a list of all 256
+ *      bytes, then moves it to the front. After the BWT most bytes repeat the
+ *      one before or one of the few before that, so most positions are 0 or
+ *      small.
+ *
+ *      A run of r zeros is written as the digits of r in bijective base 2,
+ *      least significant first, RUNA for a 1 and RUNB for a 2 (as bzip2 does):
+ *      a run of a million zeros is 20 symbols. Any other position p is the
+ *      symbol p + 1, and EOB ends the block. The block's symbols are counted,
+ *      HuffmanLengths.packageMerge turns the counts into code lengths of at
+ *      most MAX_CODE_LENGTH bits, and the block is written with their codes.
+ *
+ *      The expander decodes the symbols, undoes the runs and the
+ *      move-to-front into the BWT of the block and inverts it.
+ *
+ *  Block Layout
+ *      - (int) block size
+ *      - (long) number of bytes in original uncompressed message
+ *      - for each block
+ *          - (int) number of compressed bytes c that follow
+ *          - c bytes:
+ *              - (Bwt.CHAINS ints) rows of the BWT: the primary index, then
+ *                the rows the inverse starts its other walks from
+ *              - code length header (see CanonicalHuffman), 258 symbols:
+ *                RUNA, RUNB, positions 1 to 255, EOB
+ *              - the symbols, then EOB, padded to a byte
+ *      - index: (long) file offset of each block's (int) size
+ *      - (long) file offset of the index
+ *      The container, its thread pool and random access are BlockFile's, as
+ *      for the .hc and .lw blocks.
+ *
+ *  Trade-Offs
+ *      Larger blocks give the sort more context and compress better, but
+ *      each thread needs about 13 bytes per block byte to sort it. bzip2
+ *      also switches between up to six Huffman codes within a block; here
+ *      there is one code per block.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import sedgewick.*;
+
+public class BwtBlocks {
+
+    // bytes of input per block
+    public static final int BLOCK_SIZE = 1 << 20;
+
+    // longest code, as in bzip2
+    public static final int MAX_CODE_LENGTH = 17;
+
+    private static final int R = 256;
+
+    // symbols: runs of zeros, positions 1 to 255 (as p + 1), end of block
+    private static final int RUNA = 0;
+    private static final int RUNB = 1;
+    private static final int EOB = R + 1;
+    private static final int ALPHABET = R + 2;
+
+    // -------------------------- ONE BLOCK -------------------------- //
+
+    // compress data[0..n) into a self-contained block
+    public static byte[] compressBlock(byte[] data, int n) {
+        byte[] bwt = new byte[n];
+        int[] rows = Bwt.transform(data, n, bwt);
+
+        // move-to-front and runs of zeros, at most one symbol per byte and EOB
+        int[] symbols = new int[n + 1];
+        int count = 0;
+        byte[] order = new byte[R];
+        for (int c = 0; c < R; c++)
+            order[c] = (byte) c;
+        int run = 0;
+        for (int i = 0; i < n; i++) {
+            byte c = bwt[i];
+            if (order[0] == c) {
+                run++;
+                continue;
+            }
+            if (run > 0) {
+                count = writeRun(symbols, count, run);
+                run = 0;
+            }
+            int p = 1;
+            byte moved = order[0];
+            while (order[p] != c) {
+                byte t = order[p];
+                order[p] = moved;
+                moved = t;
+                p++;
+            }
+            order[p] = moved;
+            order[0] = c;
+            symbols[count++] = p + 1;
+        }
+        if (run > 0)
+            count = writeRun(symbols, count, run);
+        symbols[count++] = EOB;
+
+        int[] freq = new int[ALPHABET];
+        for (int i = 0; i < count; i++)
+            freq[symbols[i]]++;
+        int[] length = HuffmanLengths.packageMerge(freq, MAX_CODE_LENGTH);
+        int[] code = BitWriter.pack(length, CanonicalHuffman.assignCodes(length));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(n / 3 + 64);
+        BinaryOut blockOut = new BinaryOut(bytes);
+        BitWriter bits = new BitWriter(blockOut);
+        for (int j = 0; j < Bwt.CHAINS; j++)
+            bits.write(rows[j]);
+        CanonicalHuffman.writeLengths(bits, length);
+        for (int i = 0; i < count; i++)
+            bits.writeCode(code[symbols[i]]);
+        bits.flush();
+        blockOut.close();
+        return bytes.toByteArray();
+    }
+
+    // a run of zeros in bijective base 2, least significant digit first
+    private static int writeRun(int[] symbols, int count, int run) {
+        run--;
+        while (true) {
+            symbols[count++] = (run & 1) == 0 ? RUNA : RUNB;
+            if (run < 2) return count;
+            run = (run - 2) >> 1;
+        }
+    }
+
+    // expand a block made by compressBlock back into its n bytes
+    public static byte[] expandBlock(byte[] block, int n) {
+        BitReader bits = new BitReader(block, 0, block.length);
+        int[] rows = new int[Bwt.CHAINS];
+        for (int j = 0; j < Bwt.CHAINS; j++)
+            rows[j] = bits.readInt();
+        CanonicalHuffman decoder = new CanonicalHuffman(CanonicalHuffman.readLengths(bits, ALPHABET));
+
+        byte[] bwt = new byte[n];
+        byte[] order = new byte[R];
+        for (int c = 0; c < R; c++)
+            order[c] = (byte) c;
+        int i = 0;
+        int run = 0;
+        int weight = 1;
+        while (true) {
+            int symbol = decoder.decode(bits);
+            if (symbol <= RUNB) {
+                run += weight << symbol;
+                weight <<= 1;
+                if (run > n - i)
+                    throw new RuntimeException("Corrupt BWT block: too many bytes");
+                continue;
+            }
+            if (run > 0) {
+                byte c = order[0];
+                for (int end = i + run; i < end; i++)
+                    bwt[i] = c;
+                run = 0;
+                weight = 1;
+            }
+            if (symbol == EOB) break;
+
+            if (i == n)
+                throw new RuntimeException("Corrupt BWT block: too many bytes");
+            int p = symbol - 1;
+            byte c = order[p];
+            System.arraycopy(order, 0, order, 1, p);
+            order[0] = c;
+            bwt[i++] = c;
+        }
+        if (i != n)
+            throw new RuntimeException("Corrupt BWT block: " + i + " bytes instead of " + n);
+        return Bwt.inverse(bwt, n, rows);
+    }
+
+    // the blocks of a .bw file
+    private static final BlockFile.Coder CODER = new BlockFile.Coder() {
+        public byte[] compress(byte[] data, int n) {
+            return compressBlock(data, n);
+        }
+
+        public byte[] expand(byte[] block, int n) {
+            return expandBlock(block, n);
+        }
+    };
+
+    // -------------------------- WHOLE FILE -------------------------- //
+
+    // compress a file block by block on a pool of threads
+    public static void compress(String filepath, BinaryOut out, int threads) {
+        BlockFile.compress(filepath, out, new byte[0], BLOCK_SIZE, CODER, threads);
+    }
+
+    // expand a .bw file on a pool of threads
+    public static void expand(BinaryIn in, BinaryOut out, int threads) {
+        BlockFile.expand(in, out, CODER, threads);
+    }
+
+    // -------------------------- RANDOM ACCESS -------------------------- //
+
+    // number of blocks in a .bw file
+    public static int blockCount(String filepath) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(filepath, "r");
+        try {
+            return BlockFile.blockCount(file);
+        } finally {
+            file.close();
+        }
+    }
+
+    // expand block i of a .bw file without reading the blocks before it
+    public static byte[] readBlock(String filepath, int i) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(filepath, "r");
+        try {
+            return BlockFile.readBlock(file, filepath, i, CODER);
+        } finally {
+            file.close();
+        }
+    }
+}
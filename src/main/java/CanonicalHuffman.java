@@ -0,0 +1,263 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *  Assignment: Final Compression Project
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: CanonicalHuffman
+ *  Dependencies: BitWriter.java BitReader.java
+ *
+ *  ------------- CLI -------------
+ *  This file is not meant to be run from CLI
+ *
+ * ------------- DESIGN -------------
+ *  Overview
+ *      A canonical Huffman code is fully described by the length of each
+ *      symbol's code. Codes are handed out in order of (length, symbol), so the
+ *      compressor only has to store the 256 lengths and both sides derive the
+ *      same codes from them. No trie has to be written, read or rebuilt.
+ *
+ *  .hc File
+ *      - (8 bits) layout of the rest of the file (SINGLE_TABLE, or BLOCKS and
+ *        BLOCKS_X4 which are described in HuffmanBlocks, or ORDER1 which is
+ *        described in ContextHuffman)
+ *      - code length header
+ *      - (int) number of bytes in original uncompressed message
+ *      - the encoded bytes
+ *
+ *  Code Length Header
+ *      - (9 bits) number of symbols that occur, n
+ *      - if n == 1
+ *          - (8 bits) the symbol (it is coded with 0 bits, like a one leaf trie)
+ *      - otherwise
+ *          - (3 bits) w, the number of bits used for each (length - 1)
+ *          - for each symbol that occurs, in increasing order
+ *              - Elias gamma code of (gap + 1), where gap is the number of
+ *                unused symbols skipped since the previous symbol
+ *              - (w bits) length - 1
+ *
+ *      Text usually has a few dozen symbols with small gaps, so this is about
+ *      half the size of a serialized trie (10 bits per leaf).
+ *
+ *      The same header describes codes over other alphabets of up to 511
+ *      symbols (the literal/length and distance codes of LzHuffman); a lone
+ *      symbol then takes as many bits as the largest symbol needs.
+ *
+ *  Decoding
+ *      Codes of up to ROOT_BITS bits are resolved with one lookup in a table
+ *      filled straight from the sorted symbols. Longer codes fall back to the
+ *      canonical first-code/offset walk: for each length the codes form one
+ *      consecutive range starting at firstCode[length], so a code of that
+ *      length is symbol[offset[length] + code - firstCode[length]].
+ */
+
+import java.util.Arrays;
+
+public class CanonicalHuffman {
+
+    // layout of a .hc file, given by its first byte
+    public static final int SINGLE_TABLE = 0;       // one code length header, one bitstream
+    public static final int BLOCKS = 1;             // a code per block and a block index (HuffmanBlocks)
+    public static final int BLOCKS_X4 = 2;          // BLOCKS with 4 interleaved bitstreams per block
+    public static final int ORDER1 = 3;             // a code per group of previous bytes (ContextHuffman)
+
+    // width of the lookup table used for short codes
+    public static final int ROOT_BITS = 11;
+
+    // longest code length supported (codes and the code space fit in a long)
+    public static final int MAX_LENGTH = 62;
+
+    private static final int R = 256;
+    private static final int LONG_CODE = -1;
+
+    private final int[] table;
+    private final int rootBits;
+    private final int maxLength;
+    private final long[] firstCode;    // first code of each length
+    private final int[] count;         // number of codes of each length
+    private final int[] offset;        // index in symbol[] of the first code of each length
+    private final int[] symbol;        // symbols sorted by (length, symbol)
+
+    // -------------------------- CODES -------------------------- //
+
+    // assign canonical codes: shorter codes first, ties broken by symbol value
+    public static long[] assignCodes(int[] length) {
+        int max = 0;
+        for (int s = 0; s < length.length; s++)
+            max = Math.max(max, length[s]);
+
+        int[] lengthCount = new int[max + 1];
+        for (int s = 0; s < length.length; s++)
+            if (length[s] > 0)
+                lengthCount[length[s]]++;
+
+        long[] next = new long[max + 1];
+        long code = 0;
+        for (int len = 1; len <= max; len++) {
+            next[len] = code;
+            code = (code + lengthCount[len]) << 1;
+        }
+
+        long[] codes = new long[length.length];
+        for (int s = 0; s < length.length; s++)
+            if (length[s] > 0)
+                codes[s] = next[length[s]]++;
+        return codes;
+    }
+
+    // the only symbol that occurs, or -1 if there are several
+    public static int loneSymbol(int[] length) {
+        int lone = -1;
+        for (int s = 0; s < length.length; s++) {
+            if (length[s] == 0) continue;
+            if (lone != -1) return -1;
+            lone = s;
+        }
+        return lone;
+    }
+
+    // -------------------------- HEADER -------------------------- //
+
+    // write the code length header of an alphabet of length.length symbols
+    // (at most 511; 256 for the bytes of a .hc file)
+    public static void writeLengths(BitWriter out, int[] length) {
+        int alphabet = length.length;
+        int n = 0, max = 0;
+        for (int s = 0; s < alphabet; s++) {
+            if (length[s] > 0) n++;
+            max = Math.max(max, length[s]);
+        }
+        if (max > MAX_LENGTH) throw new RuntimeException("Huffman code too long: " + max);
+
+        out.write(n, 9);
+        if (n == 1) {
+            out.write(loneSymbol(length), bitsNeeded(alphabet - 1));
+            return;
+        }
+
+        int w = bitsNeeded(max - 1);
+        out.write(w, 3);
+        int previous = -1;
+        for (int s = 0; s < alphabet; s++) {
+            if (length[s] == 0) continue;
+            writeGamma(out, s - previous);
+            if (w > 0) out.write(length[s] - 1, w);
+            previous = s;
+        }
+    }
+
+    public static int[] readLengths(BitReader in) {
+        return readLengths(in, R);
+    }
+
+    // read the code length header of an alphabet of "alphabet" symbols
+    public static int[] readLengths(BitReader in, int alphabet) {
+        int[] length = new int[alphabet];
+        int n = in.readBits(9);
+        if (n == 1) {
+            int lone = in.readBits(bitsNeeded(alphabet - 1));
+            if (lone >= alphabet) throw new RuntimeException("Invalid code length header");
+            length[lone] = 1;
+            return length;
+        }
+        if (n == 0 || n > alphabet) throw new RuntimeException("Invalid code length header");
+
+        int w = in.readBits(3);
+        int s = -1;
+        for (int i = 0; i < n; i++) {
+            s += readGamma(in, bitsNeeded(alphabet) - 1);
+            if (s >= alphabet) throw new RuntimeException("Invalid code length header");
+            length[s] = 1 + in.readBits(w);
+            if (length[s] > MAX_LENGTH) throw new RuntimeException("Invalid code length header");
+        }
+        return length;
+    }
+
+    // number of bits needed to write x (0 for x == 0)
+    private static int bitsNeeded(int x) {
+        return 32 - Integer.numberOfLeadingZeros(x);
+    }
+
+    // Elias gamma code: (bits - 1) zeros, then x in binary (x >= 1)
+    private static void writeGamma(BitWriter out, int x) {
+        int bits = bitsNeeded(x);
+        for (int i = 1; i < bits; i++)
+            out.write(false);
+        out.write(x, bits);
+    }
+
+    // read a gamma code of at most maxZeros + 1 bits
+    private static int readGamma(BitReader in, int maxZeros) {
+        int zeros = 0;
+        while (!in.readBoolean()) {
+            if (++zeros > maxZeros) throw new RuntimeException("Invalid code length header");
+        }
+        return (1 << zeros) | in.readBits(zeros);
+    }
+
+    // -------------------------- DECODER -------------------------- //
+
+    public CanonicalHuffman(int[] length) {
+        int max = 0;
+        for (int s = 0; s < length.length; s++)
+            max = Math.max(max, length[s]);
+        if (max == 0) throw new RuntimeException("Huffman code table is empty");
+        if (max > MAX_LENGTH) throw new RuntimeException("Huffman code too long: " + max);
+        maxLength = max;
+
+        // count codes per length and sort symbols by (length, symbol)
+        count = new int[max + 1];
+        for (int s = 0; s < length.length; s++)
+            if (length[s] > 0)
+                count[length[s]]++;
+        offset = new int[max + 2];
+        for (int len = 1; len <= max; len++)
+            offset[len + 1] = offset[len] + count[len];
+        symbol = new int[offset[max + 1]];
+        int[] next = offset.clone();
+        for (int s = 0; s < length.length; s++)
+            if (length[s] > 0)
+                symbol[next[length[s]]++] = s;
+
+        firstCode = new long[max + 1];
+        long code = 0;
+        for (int len = 1; len <= max; len++) {
+            firstCode[len] = code;
+            if (code + count[len] > (1L << len)) throw new RuntimeException("Invalid code lengths");
+            code = (code + count[len]) << 1;
+        }
+
+        // short codes fill every table entry they are a prefix of; the rest
+        // (prefixes of long codes) are left to the first-code/offset walk
+        rootBits = Math.min(ROOT_BITS, max);
+        table = new int[1 << rootBits];
+        Arrays.fill(table, LONG_CODE);
+        for (int len = 1; len <= rootBits; len++) {
+            for (int i = 0; i < count[len]; i++) {
+                int first = (int) (firstCode[len] + i) << (rootBits - len);
+                int entry = (symbol[offset[len] + i] << 8) | len;
+                Arrays.fill(table, first, first + (1 << (rootBits - len)), entry);
+            }
+        }
+    }
+
+    // decode one symbol, consuming exactly the bits of its code
+    public int decode(BitReader in) {
+        int entry = table[in.peek(rootBits)];
+        if (entry != LONG_CODE) {
+            in.consume(entry & 0xff);
+            return entry >>> 8;
+        }
+
+        long code = in.readBits(rootBits);
+        for (int len = rootBits + 1; len <= maxLength; len++) {
+            code = (code << 1) | in.readBits(1);
+            long i = code - firstCode[len];
+            if (i >= 0 && i < count[len])
+                return symbol[offset[len] + (int) i];
+        }
+        throw new RuntimeException("Invalid Huffman code in input");
+    }
+}
@@ -0,0 +1,327 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *  Assignment: Final Compression Project
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: ContextHuffman
+ *  Dependencies: BinaryIn.java BinaryOut.java BitReader.java BitWriter.java
+ *                CanonicalHuffman.java HuffmanLengths.java
+ *
+ *  ------------- CLI -------------
+ *  This file is not meant to be run from CLI (see SchubsH -1 and -g)
+ *
+ * ------------- DESIGN -------------
+ *  Overview
+ *      The order-1 layout of a .hc file. Every byte is coded with a canonical
+ *      code chosen by the byte before it (its context), so in text the code
+ *      after 'q' can give 'u' one bit and the code after ' ' can favour the
+ *      first letters of words. Contexts are put into groups that share one
+ *      code: with -1 every context that occurs has its own group, with -g n
+ *      similar contexts are clustered into at most n groups, which keeps the
+ *      header small on small files.
+ *
+ *  Order-1 Layout
+ *      - (8 bits) layout (CanonicalHuffman.ORDER1)
+ *      - (int) number of bytes in original uncompressed message
+ *      - (9 bits) number of groups g
+ *      - if g > 1, for each of the 256 contexts: its group in
+ *        bitsNeeded(g - 1) bits (contexts that never occur use group 0)
+ *      - for each group: a code length header (see CanonicalHuffman)
+ *      - the encoded bytes; the first byte is coded in the context of byte 0
+ *
+ *  Process
+ *      Two passes over the file, like SchubsH -c: the first counts every
+ *      (previous byte, byte) pair, the second encodes. A group with a single
+ *      symbol codes it with 0 bits.
+ *
+ *      Clustering is k-means over the 256 context histograms: the n busiest
+ *      contexts seed the groups, then every context moves to the group whose
+ *      (smoothed) distribution codes it in the fewest bits, and the group
+ *      histograms are recomputed, until nothing moves (or 16 rounds).
+ *
+ *  Trade-Offs
+ *      Decoding is the same table lookup as order-0, one decoder per group
+ *      picked by the previous byte. The header grows with the number of
+ *      groups, so a full order-1 table only pays off on larger inputs.
+ */
+
+import java.util.Arrays;
+
+import sedgewick.*;
+
+public class ContextHuffman {
+
+    // most groups a file can have (one per context)
+    public static final int MAX_GROUPS = 256;
+
+    private static final int R = 256;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int ROUNDS = 16;
+
+    // -------------------------- COMPRESS -------------------------- //
+
+    // compress a file into the order-1 layout with at most "groups" codes
+    // (maxCodeLength 0 means no limit)
+    public static void compress(String filepath, BinaryOut out, int groups, int maxCodeLength) {
+        if (groups < 1 || groups > MAX_GROUPS)
+            throw new RuntimeException("Number of context groups must be between 1 and " + MAX_GROUPS);
+
+        // first pass: count every (previous byte, byte) pair
+        int[][] freq = new int[R][R];
+        long size = count(filepath, freq);
+        if (size == 0) return;
+        if (size > Integer.MAX_VALUE)
+            throw new RuntimeException(filepath + " is too large to compress (" + size + " bytes)");
+        compress(filepath, out, groups, maxCodeLength, freq, (int) size);
+    }
+
+    // read the file once, counting every (previous byte, byte) pair; returns
+    // the file size
+    static long count(String filepath, int[][] freq) {
+        long size = 0;
+        byte[] buffer = new byte[BUFFER_SIZE];
+        BinaryIn in = new BinaryIn(filepath);
+        try {
+            int prev = 0, n;
+            while ((n = in.read(buffer, 0, BUFFER_SIZE)) > 0) {
+                for (int i = 0; i < n; i++) {
+                    int c = buffer[i] & 0xff;
+                    freq[prev][c]++;
+                    prev = c;
+                }
+                size += n;
+            }
+        } finally {
+            in.close();
+        }
+        return size;
+    }
+
+    // write the file with the codes made from the pair counts of its first
+    // pass (size bytes); the second pass must find the file as it was counted
+    static void compress(String filepath, BinaryOut out, int groups, int maxCodeLength, int[][] freq, int size) {
+
+        // group the contexts and build one code per group
+        int[] group = cluster(freq, groups);
+        int g = 0;
+        for (int c = 0; c < R; c++)
+            g = Math.max(g, group[c] + 1);
+        int[][] groupFreq = new int[g][R];
+        for (int c = 0; c < R; c++)
+            for (int s = 0; s < R; s++)
+                groupFreq[group[c]][s] += freq[c][s];
+
+        int[][] length = new int[g][];
+        int[][] codeLength = new int[g][];     // what is written per symbol
+        long[][] code = new long[g][];
+        int[][] packed = new int[g][];
+        boolean fits = true;
+        for (int k = 0; k < g; k++) {
+            length[k] = maxCodeLength > 0 ? HuffmanLengths.packageMerge(groupFreq[k], maxCodeLength)
+                                          : HuffmanLengths.huffman(groupFreq[k]);
+
+            // a lone symbol is coded with 0 bits
+            codeLength[k] = CanonicalHuffman.loneSymbol(length[k]) == -1 ? length[k] : new int[R];
+            code[k] = CanonicalHuffman.assignCodes(codeLength[k]);
+            packed[k] = BitWriter.pack(codeLength[k], code[k]);
+            fits &= packed[k] != null;
+        }
+
+        // header
+        BitWriter bits = new BitWriter(out);
+        bits.write((char) CanonicalHuffman.ORDER1);
+        bits.write(size);
+        bits.write(g, 9);
+        int w = bitsNeeded(g - 1);
+        if (g > 1)
+            for (int c = 0; c < R; c++)
+                bits.write(group[c], w);
+        for (int k = 0; k < g; k++)
+            CanonicalHuffman.writeLengths(bits, length[k]);
+
+        // second pass: code each byte with the code of its context's group;
+        // it stops after size bytes, and a byte its group's code does not
+        // have (length 0), or bytes past size, mean the file changed
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int total = 0;
+        BinaryIn in = new BinaryIn(filepath);
+        try {
+            int prev = 0, n;
+            while (total < size && (n = in.read(buffer, 0, Math.min(BUFFER_SIZE, size - total))) > 0) {
+                for (int i = 0; i < n; i++) {
+                    int c = buffer[i] & 0xff;
+                    int k = group[prev];
+                    if (length[k][c] == 0)
+                        throw new RuntimeException(filepath + " changed while it was being compressed");
+                    if (fits) bits.writeCode(packed[k][c]);
+                    else      bits.writeCode(code[k][c], codeLength[k][c]);
+                    prev = c;
+                }
+                total += n;
+            }
+            if (total != size || !in.isEmpty())
+                throw new RuntimeException(filepath + " changed while it was being compressed");
+        } finally {
+            in.close();
+        }
+        bits.flush();
+    }
+
+    // -------------------------- EXPAND -------------------------- //
+
+    // expand an order-1 layout file (after its layout byte)
+    public static void expand(BinaryIn in, BinaryOut out) {
+        BitReader bits = new BitReader(in);
+        int size = bits.readInt();
+        int g = bits.readBits(9);
+        if (g < 1 || g > MAX_GROUPS) throw new RuntimeException("Invalid number of context groups " + g);
+
+        int[] group = new int[R];
+        int w = bitsNeeded(g - 1);
+        if (g > 1) {
+            for (int c = 0; c < R; c++) {
+                group[c] = bits.readBits(w);
+                if (group[c] >= g) throw new RuntimeException("Invalid context group " + group[c]);
+            }
+        }
+
+        // one table-driven decoder per group, or the symbol of a lone-symbol group
+        CanonicalHuffman[] decoder = new CanonicalHuffman[g];
+        int[] lone = new int[g];
+        for (int k = 0; k < g; k++) {
+            int[] length = CanonicalHuffman.readLengths(bits);
+            lone[k] = CanonicalHuffman.loneSymbol(length);
+            if (lone[k] == -1)
+                decoder[k] = new CanonicalHuffman(length);
+        }
+
+        // per context, so the loop does one lookup to find its decoder
+        CanonicalHuffman[] byContext = new CanonicalHuffman[R];
+        int[] loneByContext = new int[R];
+        for (int c = 0; c < R; c++) {
+            byContext[c] = decoder[group[c]];
+            loneByContext[c] = lone[group[c]];
+        }
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int n = 0, prev = 0;
+        for (int i = 0; i < size; i++) {
+            CanonicalHuffman d = byContext[prev];
+            prev = d != null ? d.decode(bits) : loneByContext[prev];
+            buffer[n++] = (byte) prev;
+            if (n == BUFFER_SIZE) {
+                out.write(buffer, 0, n);
+                n = 0;
+            }
+        }
+        out.write(buffer, 0, n);
+        out.flush();
+    }
+
+    // -------------------------- CLUSTERING -------------------------- //
+
+    // the group (0 to at most groups - 1) of every context; contexts that never
+    // occur are put in group 0, and group numbers are compact
+    static int[] cluster(int[][] freq, int groups) {
+        long[] total = new long[R];
+        int active = 0;
+        for (int c = 0; c < R; c++) {
+            for (int s = 0; s < R; s++)
+                total[c] += freq[c][s];
+            if (total[c] > 0) active++;
+        }
+
+        int[] group = new int[R];
+        if (active <= groups) {
+            // every context that occurs gets its own group
+            int k = 0;
+            for (int c = 0; c < R; c++)
+                if (total[c] > 0) group[c] = k++;
+            return group;
+        }
+
+        // seed the groups with the busiest contexts
+        boolean[] seed = new boolean[R];
+        for (int k = 0; k < groups; k++) {
+            int best = -1;
+            for (int c = 0; c < R; c++)
+                if (!seed[c] && (best == -1 || total[c] > total[best]))
+                    best = c;
+            seed[best] = true;
+            group[best] = k;
+        }
+        for (int c = 0; c < R; c++)
+            if (!seed[c]) group[c] = -1;
+
+        // k-means: regroup every context by the cost of coding it with each group
+        double[][] cost = new double[groups][R];
+        for (int round = 0; round < ROUNDS; round++) {
+            groupCosts(freq, group, cost);
+            boolean moved = false;
+            for (int c = 0; c < R; c++) {
+                if (total[c] == 0) continue;
+                int best = group[c] < 0 ? 0 : group[c];
+                double bestBits = bits(freq[c], cost[best]);
+                for (int k = 0; k < groups; k++) {
+                    double b = bits(freq[c], cost[k]);
+                    if (b < bestBits) {
+                        bestBits = b;
+                        best = k;
+                    }
+                }
+                if (best != group[c]) {
+                    group[c] = best;
+                    moved = true;
+                }
+            }
+            if (!moved) break;
+        }
+
+        // drop groups that ended up empty and number the rest from 0
+        int[] number = new int[groups];
+        Arrays.fill(number, -1);
+        int k = 0;
+        for (int c = 0; c < R; c++) {
+            if (total[c] == 0) continue;
+            if (number[group[c]] == -1) number[group[c]] = k++;
+        }
+        for (int c = 0; c < R; c++)
+            group[c] = total[c] == 0 ? 0 : number[group[c]];
+        return group;
+    }
+
+    // bits per symbol of each group's distribution (each count smoothed by 1/2)
+    private static void groupCosts(int[][] freq, int[] group, double[][] cost) {
+        int groups = cost.length;
+        long[][] sum = new long[groups][R];
+        for (int c = 0; c < R; c++)
+            if (group[c] >= 0)
+                for (int s = 0; s < R; s++)
+                    sum[group[c]][s] += freq[c][s];
+        for (int k = 0; k < groups; k++) {
+            long total = 0;
+            for (int s = 0; s < R; s++)
+                total += sum[k][s];
+            double log2Total = Math.log(total + R / 2.0) / Math.log(2);
+            for (int s = 0; s < R; s++)
+                cost[k][s] = log2Total - Math.log(sum[k][s] + 0.5) / Math.log(2);
+        }
+    }
+
+    // bits needed to code a histogram with the given bits per symbol
+    private static double bits(int[] freq, double[] cost) {
+        double bits = 0;
+        for (int s = 0; s < R; s++)
+            if (freq[s] > 0)
+                bits += freq[s] * cost[s];
+        return bits;
+    }
+
+    // number of bits needed to write x (0 for x == 0)
+    private static int bitsNeeded(int x) {
+        return 32 - Integer.numberOfLeadingZeros(x);
+    }
+}
@@ -7,9 +7,14 @@
  * 
  * ------------- CLASS INFO -------------
  *  Class: Deschubs
- *  Dependencies:   BinaryIn.java BinaryOut.java MinPQ.java 
+ *  Dependencies:   BinaryIn.java BinaryOut.java
  *                  SchubsH.java Queue.java TST.java SchubsL.java
- *                  SchubsArc.java
+ *                  SchubsArc.java BitReader.java HuffmanDecoder.java
+ *                  CanonicalHuffman.java HuffmanBlocks.java AdaptiveHuffman.java
+ *                  ContextHuffman.java LzwDecoder.java LzwBlocks.java
+ *                  LzwDictionary.java SchubsZ.java LzMatchFinder.java LzDecoder.java
+ *                  LzHuffman.java BwtBlocks.java Bwt.java RangeModel.java
+ *                  RangeDecoder.java
  *  Modified Version of Files From:   http://algs4.cs.princeton.edu/55compression/
  * 
  *  ------------- CLI -------------
@@ -18,6 +23,14 @@
  *  To Compress a File
  *      > mvn compile
  *      > java -cp target/classes Deschubs <filename>
+ *
+ *  To Expand a Pipe (.ha, .hr, .ll, .lw, .lz or .lh, from standard input to standard output)
+ *      > java -cp target/classes SchubsH -a - < log.txt | java -cp target/classes Deschubs - ha
+ *      > java -cp target/classes SchubsH -a -r - < log.txt | java -cp target/classes Deschubs - hr
+ *      > java -cp target/classes SchubsL -w 16 - < log.txt | java -cp target/classes Deschubs - lw
+ *
+ *  To Expand a .lw File Compressed With a Preset Dictionary (SchubsL -d)
+ *      > java -cp target/classes Deschubs -d msg.dict msgs/1.json.lw
  *  
  *  To Test
  *      > mvn test
@@ -50,7 +63,10 @@
  * 
  * ------------- DESIGN -------------
  *  Overview
- *      Handles Huffman (.hh), LZW (.ll), and Tarred Huffman (.zh) decompression.
+ *      Handles Huffman (.hh), canonical Huffman (.hc), adaptive Huffman (.ha),
+ *      range coded (.hr), LZW (.ll and variable width .lw), LZSS (.lz),
+ *      LZSS + Huffman (.lh), Burrows-Wheeler (.bw) and Tarred Huffman (.zh)
+ *      or range coded (.zr) decompression.
  *  
  *  Process
  *      Depending on the extension given, Deschubs will either carry out a Huffman, 
@@ -59,18 +75,61 @@
  *      
  *      Huffman
  *          - Read in trie to create encoding scheme
+ *          - Flatten the trie into a lookup table (HuffmanDecoder) so each symbol
+ *            is decoded from one table lookup instead of one trie step per bit
  *          - Use encoding scheme to then decode file 
  *      
+ *      Canonical Huffman (.hc)
+ *          - Read in code lengths and derive the canonical codes from them
+ *          - Decode short codes with one table lookup and long codes with the
+ *            first-code/offset walk (no trie is built)
+ *          - With the block layout, every block has its own code lengths and
+ *            the blocks are decoded in parallel (see HuffmanBlocks); blocks
+ *            with 4 interleaved streams decode one symbol from each per step
+ *          - With the order-1 layout the previous byte picks which code's
+ *            table decodes the next byte (see ContextHuffman)
+ *      
+ *      Range coded (.hr)
+ *          - Read the frequencies (or start the adaptive model), then find
+ *            each byte from its share of the interval with one lookup in the
+ *            model's table (see RangeDecoder)
+ *      
  *      LZW
  *          - Read file an rebuild table as you go
+ *          - The table is a prefix code and a suffix byte per entry, and each
+ *            code is spelled out backwards into one reused buffer (see
+ *            LzwDecoder), so decoding makes no Strings
+ *          - .lw codes are read with the same width the compressor used: enough
+ *            bits for the next free code, up to the width in the header
+ *          - A CLEAR code in a .lw file starts a new table
+ *          - In LRU mode a full .lw table replaces its least recently used
+ *            entries, in the same order as the compressor (see LzwLru)
+ *          - A .lw file in blocks has a table per block, and the blocks are
+ *            expanded in parallel (see LzwBlocks)
  *      
+ *      LZSS (.lz)
+ *          - A literal is stored, a match is copied from the output already
+ *            written, which is kept in a window of two (see LzDecoder); there
+ *            is no table to rebuild, so this is the fastest format to expand
+ *          - .lh blocks start with a canonical code for literals and lengths
+ *            and one for distances, and each symbol is one table lookup (see
+ *            LzHuffman) before the same copy
+ *
+ *      Burrows-Wheeler (.bw)
+ *          - Decode each block's symbols with its canonical code, undo the
+ *            zero runs and move-to-front, then invert the BWT by following
+ *            the LF mapping from the primary index (see Bwt)
+ *          - The blocks are expanded in parallel (see BwtBlocks)
+ *
  *      Tarred Huffman 
  *          - Read in trie to create encoding scheme
  *          - Use encoding scheme to then decode file
  *          - Untar file according to agreement (elaboration in SchubsArc)
+ *          - A .zr archive is range coded instead (as .hr), then untarred
  */
 
 import java.io.File;
+import java.util.Arrays;
 
 import sedgewick.*;
 
@@ -80,6 +139,7 @@ public class Deschubs {
     public static boolean logging = true;
     private static BinaryIn in;
     private static BinaryOut out;
+    private static LzwDictionary preset;     // given with -d, for primed .lw files
 
     private static final int R = 256;        // number of input chars
     private static final int L = 4096;       // number of codewords = 2^W
@@ -87,30 +147,6 @@ public class Deschubs {
 
     // -------------------------- HUFFMAN -------------------------- //
 
-    private static class Node implements Comparable<Node> {
-        private final char ch;
-        private final int freq;
-        private final Node left, right;
-
-        Node(char ch, int freq, Node left, Node right) {
-            this.ch    = ch;
-            this.freq  = freq;
-            this.left  = left;
-            this.right = right;
-        }
-
-        // is the node a leaf node?
-        private boolean isLeaf() {
-            assert (left == null && right == null) || (left != null && right != null);
-            return (left == null && right == null);
-        }
-
-        // compare, based on frequency
-        public int compareTo(Node that) {
-            return this.freq - that.freq;
-        }
-    }
-
     public static void err_print(String msg) {
         if (logging)
             System.err.print(msg);
@@ -125,34 +161,56 @@ public class Deschubs {
 
         if (in.isEmpty()) return;
 
-        // read in Huffman trie from input stream
-        Node root = readTrie(); 
+        // everything after the (byte-aligned) start of the file goes through
+        // the BitReader so the decoder can look at many bits at once
+        BitReader bits = new BitReader(in);
+
+        // read in Huffman trie from input stream, straight into a code table
+        int[] codeLength = new int[R];
+        long[] code = new long[R];
+        int lone = readTrie(bits, codeLength, code, 0, 0L);
         // number of bytes to write
-        int length = in.readInt();
-        // decode using the Huffman trie
+        int length = bits.readInt();
+
+        // a trie that is a single leaf encodes every byte with 0 bits
+        if (lone != -1) {
+            for (int i = 0; i < length; i++)
+                out.write((char) lone);
+            out.flush();
+            return;
+        }
+
+        // turn the code table into a lookup table, then decode
+        HuffmanDecoder decoder = new HuffmanDecoder(codeLength, code);
+
+        byte[] buffer = new byte[1 << 16];
+        int n = 0;
         for (int i = 0; i < length; i++) {
-            Node x = root;
-            while (!x.isLeaf()) {
-                boolean bit = in.readBoolean();
-                if (bit) x = x.right;
-                else     x = x.left;
+            buffer[n++] = (byte) decoder.decode(bits);
+            if (n == buffer.length) {
+                out.write(buffer, 0, n);
+                n = 0;
             }
-            out.write(x.ch);
         }
+        out.write(buffer, 0, n);
         out.flush();
     }
 
-    private static Node readTrie() {
-        boolean isLeaf = in.readBoolean();
+    // read the trie, recording the length and bits of every leaf's code (no
+    // node objects); returns the symbol if the trie is a single leaf, else -1
+    private static int readTrie(BitReader bits, int[] codeLength, long[] code, int depth, long prefix) {
+        boolean isLeaf = bits.readBoolean();
         if (isLeaf) {
-            char x = in.readChar();
-            // err_println("t: " + x );
-            return new Node(x, -1, null, null);
-        }
-        else {
-            // err_print("f");
-            return new Node('\0', -1, readTrie(), readTrie());
+            char x = bits.readChar();
+            codeLength[x] = depth;
+            code[x] = prefix;
+            return depth == 0 ? x : -1;
         }
+        if (depth == CanonicalHuffman.MAX_LENGTH)
+            throw new RuntimeException("Invalid Huffman trie in input");
+        readTrie(bits, codeLength, code, depth + 1, prefix << 1);
+        readTrie(bits, codeLength, code, depth + 1, (prefix << 1) | 1);
+        return -1;
     }
 
     private static void huffmanExpand(String filepath) {
@@ -174,36 +232,62 @@ public class Deschubs {
         }
     }
 
-    // -------------------------- LZW -------------------------- //
-
-    public static void expandL() {
+    // expand the canonical format (.hc), whose first byte gives its layout
+    public static void expandHC() {
 
         if (in.isEmpty()) return;
 
-        String[] st = new String[L];
-        int i; // next available codeword value
+        int layout = in.readChar();
+        switch (layout) {
+            case CanonicalHuffman.SINGLE_TABLE:
+                expandSingleTable();
+                break;
+            case CanonicalHuffman.BLOCKS:
+            case CanonicalHuffman.BLOCKS_X4:
+                // blocks are decoded on every core
+                HuffmanBlocks.expand(in, out, layout, Runtime.getRuntime().availableProcessors());
+                break;
+            case CanonicalHuffman.ORDER1:
+                ContextHuffman.expand(in, out);
+                break;
+            default:
+                throw new RuntimeException("Unknown .hc layout " + layout);
+        }
+    }
 
-        // initialize symbol table with all 1-character strings
-        for (i = 0; i < R; i++)
-            st[i] = "" + (char) i;
-        st[i++] = "";                        // (unused) lookahead for EOF
+    // one code length header, then the encoded bytes
+    private static void expandSingleTable() {
 
-        int codeword = in.readInt(W);
-        String val = st[codeword];
+        BitReader bits = new BitReader(in);
 
-        while (true) {
-            out.write(val);
-            codeword = in.readInt(W);
-            if (codeword == R) break;
-            String s = st[codeword];
-            if (i == codeword) s = val + val.charAt(0);   // special case hack
-            if (i < L) st[i++] = val + s.charAt(0);
-            val = s;
+        // read in code lengths and number of bytes to write
+        int[] codeLength = CanonicalHuffman.readLengths(bits);
+        int length = bits.readInt();
+
+        // a lone symbol is coded with 0 bits
+        int lone = CanonicalHuffman.loneSymbol(codeLength);
+        if (lone != -1) {
+            for (int i = 0; i < length; i++)
+                out.write((char) lone);
+            out.flush();
+            return;
         }
-        out.close();
+
+        CanonicalHuffman decoder = new CanonicalHuffman(codeLength);
+        byte[] buffer = new byte[1 << 16];
+        int n = 0;
+        for (int i = 0; i < length; i++) {
+            buffer[n++] = (byte) decoder.decode(bits);
+            if (n == buffer.length) {
+                out.write(buffer, 0, n);
+                n = 0;
+            }
+        }
+        out.write(buffer, 0, n);
+        out.flush();
     }
 
-    public static void lzwExpand(String filepath) {
+    private static void canonicalExpand(String filepath) {
         try {
             File file = new File(filepath);
             if (!file.exists()) {
@@ -213,6 +297,175 @@ public class Deschubs {
             
             in = new BinaryIn(filepath);
             out = new BinaryOut(filepath.substring(0,filepath.length() - 3));
+            expandHC();
+        } finally {
+            if (in != null)
+                in.close();
+            if (out != null)
+                out.close();
+        }
+    }
+
+    // open "in" on a compressed file and "out" on the file it expands to, or
+    // standard input and standard output when filepath is "-"; false if the
+    // file does not exist
+    private static boolean openStreams(String filepath) {
+        if (filepath.equals("-")) {
+            in = new BinaryIn();
+            out = new BinaryOut();
+            return true;
+        }
+        File file = new File(filepath);
+        if (!file.exists()) {
+            System.out.println(filepath + " does not exist");
+            return false;
+        }
+        in = new BinaryIn(filepath);
+        out = new BinaryOut(filepath.substring(0,filepath.length() - 3));
+        return true;
+    }
+
+    // expand the adaptive format (.ha) from a file, or from standard input to
+    // standard output when filepath is "-"
+    private static void adaptiveExpand(String filepath) {
+        try {
+            if (!openStreams(filepath)) return;
+            AdaptiveHuffman.expand(in, out);
+        } finally {
+            if (in != null)
+                in.close();
+            if (out != null)
+                out.close();
+        }
+    }
+
+    // expand the range coded format (.hr) from a file, or from standard input
+    // to standard output when filepath is "-"
+    private static void rangeExpand(String filepath) {
+        try {
+            if (!openStreams(filepath)) return;
+            RangeModel.expand(in, out);
+        } finally {
+            if (in != null)
+                in.close();
+            if (out != null)
+                out.close();
+        }
+    }
+
+    // -------------------------- LZ77 -------------------------- //
+
+    // expand the LZSS format (.lz), see SchubsZ
+    public static void expandZ() {
+
+        if (in.isEmpty()) return;
+
+        int windowBits = in.readChar();
+        if (windowBits < SchubsZ.MIN_WINDOW_BITS || windowBits > SchubsZ.MAX_WINDOW_BITS)
+            throw new RuntimeException("Invalid LZ window bits " + windowBits);
+
+        BitReader bits = new BitReader(in);
+        LzDecoder window = new LzDecoder(windowBits, out);
+        while (true) {
+            // a 0 flag and its literal are the top 9 bits, below 256
+            int literal = bits.peek(9);
+            if (literal < R) {
+                bits.consume(9);
+                window.literal(literal);
+                continue;
+            }
+            bits.consume(1);
+            int distance = bits.readBits(windowBits);
+            if (distance == 0) break;
+            window.copy(distance, bits.readBits(8) + LzMatchFinder.MIN_MATCH);
+        }
+        window.flush();
+    }
+
+    // expand the LZ77 + Huffman format (.lh), see SchubsZ and LzHuffman
+    public static void expandLH() {
+
+        if (in.isEmpty()) return;
+
+        int windowBits = in.readChar();
+        if (windowBits < SchubsZ.MIN_WINDOW_BITS || windowBits > SchubsZ.MAX_WINDOW_BITS)
+            throw new RuntimeException("Invalid LZ window bits " + windowBits);
+
+        LzDecoder window = new LzDecoder(windowBits, out);
+        LzHuffman.expand(new BitReader(in), window, windowBits);
+        window.flush();
+    }
+
+    // "-" expands standard input to standard output
+    public static void lzHuffmanExpand(String filepath) {
+        try {
+            if (!openStreams(filepath)) return;
+            expandLH();
+        } finally {
+            if (in != null)
+                in.close();
+            if (out != null)
+                out.close();
+        }
+    }
+
+    // "-" expands standard input to standard output
+    public static void lzExpand(String filepath) {
+        try {
+            if (!openStreams(filepath)) return;
+            expandZ();
+        } finally {
+            if (in != null)
+                in.close();
+            if (out != null)
+                out.close();
+        }
+    }
+
+    // -------------------------- BWT -------------------------- //
+
+    // expand the block sorting format (.bw), see SchubsB
+    public static void expandBW() {
+
+        if (in.isEmpty()) return;
+
+        BwtBlocks.expand(in, out, Runtime.getRuntime().availableProcessors());
+    }
+
+    public static void bwtExpand(String filepath) {
+        try {
+            if (!openStreams(filepath)) return;
+            expandBW();
+        } finally {
+            if (in != null)
+                in.close();
+            if (out != null)
+                out.close();
+        }
+    }
+
+    // -------------------------- LZW -------------------------- //
+
+    public static void expandL() {
+
+        if (in.isEmpty()) return;
+
+        BitReader bits = new BitReader(in);
+        LzwDecoder st = new LzwDecoder(L, R+1, out);    // R is the EOF code
+
+        while (true) {
+            int codeword = bits.readBits(W);
+            if (codeword == R) break;
+            st.decode(codeword);
+        }
+        st.flush();
+        out.close();
+    }
+
+    // "-" expands standard input to standard output
+    public static void lzwExpand(String filepath) {
+        try {
+            if (!openStreams(filepath)) return;
             expandL();
         } finally {
             if (in != null)
@@ -223,6 +476,57 @@ public class Deschubs {
     }
 
 
+    // expand the variable width format (.lw), see SchubsL
+    public static void expandLW() {
+
+        if (in.isEmpty()) return;
+
+        int maxWidth = in.readChar();
+        if (maxWidth < SchubsL.MIN_WIDTH || maxWidth > SchubsL.MAX_WIDTH)
+            throw new RuntimeException("Invalid LZW code width " + maxWidth);
+        int mode = in.readChar();
+        if ((mode & ~(SchubsL.RESET | SchubsL.BLOCKS | SchubsL.LRU | SchubsL.PRESET)) != 0
+                || (mode & (SchubsL.RESET | SchubsL.LRU)) == (SchubsL.RESET | SchubsL.LRU))
+            throw new RuntimeException("Unknown LZW mode " + mode);
+
+        // a primed file needs the dictionary it was compressed with
+        LzwDictionary dictionary = null;
+        if ((mode & SchubsL.PRESET) != 0) {
+            int id = in.readInt();
+            if (preset == null)
+                throw new RuntimeException("This file was compressed with a preset dictionary, give it with -d");
+            if (preset.id() != id)
+                throw new RuntimeException("This file was compressed with another dictionary (id "
+                                           + Integer.toHexString(id) + ")");
+            dictionary = preset;
+        }
+
+        if ((mode & SchubsL.BLOCKS) != 0) {
+            LzwBlocks.expand(in, out, maxWidth, mode, dictionary, Runtime.getRuntime().availableProcessors());
+            return;
+        }
+
+        int size = 1 << maxWidth;
+        boolean reset = (mode & SchubsL.RESET) != 0;
+        LzwDecoder st = new LzwDecoder(size, reset ? R+2 : R+1, (mode & SchubsL.LRU) != 0, dictionary, out);
+        st.expand(new BitReader(in), maxWidth, reset ? R+1 : -1);
+        st.flush();
+    }
+
+    // "-" expands standard input to standard output
+    public static void lzwVariableExpand(String filepath) {
+        try {
+            if (!openStreams(filepath)) return;
+            expandLW();
+        } finally {
+            if (in != null)
+                in.close();
+            if (out != null)
+                out.close();
+        }
+    }
+
+
     // -------------------------- TARS -------------------------- //
 
     // extracts files(s) from a file aaccording to the agreement 
@@ -262,6 +566,41 @@ public class Deschubs {
 
     public static void main(String[] args) {
 
+        // "-d <dictionary>" gives the preset dictionary of primed .lw files
+        // (for this call only)
+        preset = null;
+        if (args.length > 2 && args[0].equals("-d")) {
+            preset = LzwDictionary.read(args[1]);
+            args = Arrays.copyOfRange(args, 2, args.length);
+        }
+
+        // "- <extension>" expands a stream from standard input to standard output
+        if (args.length == 2 && args[0].equals("-")) {
+            switch (args[1]) {
+                case "ha":
+                    adaptiveExpand("-");
+                    return;
+                case "hr":
+                    rangeExpand("-");
+                    return;
+                case "ll":
+                    lzwExpand("-");
+                    return;
+                case "lw":
+                    lzwVariableExpand("-");
+                    return;
+                case "lz":
+                    lzExpand("-");
+                    return;
+                case "lh":
+                    lzHuffmanExpand("-");
+                    return;
+                default:
+                    System.out.println("Only .ha, .hr, .ll, .lw, .lz and .lh can be expanded from standard input");
+                    return;
+            }
+        }
+
         if (args.length != 1) {
             System.out.println("Please enter the correct number of arguments");
             return;
@@ -278,14 +617,46 @@ public class Deschubs {
                 // decompress (expand) .hh file using huffman
                 huffmanExpand(args[0]);
                 break;
+            case "hc":
+                // decompress (expand) .hc file using canonical huffman
+                canonicalExpand(args[0]);
+                break;
+            case "ha":
+                // decompress (expand) .ha file using adaptive huffman
+                adaptiveExpand(args[0]);
+                break;
+            case "hr":
+                // decompress (expand) .hr file using the range decoder
+                rangeExpand(args[0]);
+                break;
             case "ll":
                  // decompress (expand) .ll file using lzw
                 lzwExpand(args[0]);
                 break;
+            case "lw":
+                 // decompress (expand) .lw file using variable width lzw
+                lzwVariableExpand(args[0]);
+                break;
+            case "lz":
+                 // decompress (expand) .lz file using lzss
+                lzExpand(args[0]);
+                break;
+            case "lh":
+                 // decompress (expand) .lh file using lzss and huffman
+                lzHuffmanExpand(args[0]);
+                break;
+            case "bw":
+                 // decompress (expand) .bw file using the inverse burrows-wheeler transform
+                bwtExpand(args[0]);
+                break;
             case "zh":
-                // decompress (expand) .zh file using huffman
+            case "zr":
+                // decompress (expand) .zh file using huffman, .zr with the range decoder
                 // remove ".zh" extension from archive file
-                huffmanExpand(args[0]);
+                if (extension.equals("zh"))
+                    huffmanExpand(args[0]);
+                else
+                    rangeExpand(args[0]);
 
                 // untars uncompressed archive 
                 unTarFile(args[0].substring(0,args[0].length() - 3));
@@ -7,7 +7,7 @@
  * 
  * ------------- CLASS INFO -------------
  *  Class: SchubsH
- *  Dependencies: BinaryIn.java BinaryOut.java MinPQ.java
+ *  Dependencies: BinaryOut.java BitWriter.java CanonicalHuffman.java SchubsH.java
  *  Modified Version of Files From:   http://algs4.cs.princeton.edu/55compression/
  * 
  *  ------------- CLI -------------
@@ -18,7 +18,12 @@
  * ------------- DESIGN -------------
  *  Overview
  *      accepts a single file and compresses it using huffman. Does 
- *      not add extension.
+ *      not add extension. The file is streamed twice (count, then encode)
+ *      so the tar never has to fit in memory.
+ *
+ *      The passes, the code lengths and the trie are SchubsH's (the .zh body
+ *      is a .hh file); only the limit (maxCodeLength, set with SchubsArc -m)
+ *      and logging are this class's own.
  */
 
  import sedgewick.*;
@@ -28,34 +33,12 @@ public class HelperArcH {
 
     // alphabet size of extended ASCII
     private static final int R = 256;
-    public static boolean logging = true;
-    private static BinaryIn in;
-    private static BinaryOut out;
-
-    // Huffman trie node
-    private static class Node implements Comparable<Node> {
-        private final char ch;
-        private final int freq;
-        private final Node left, right;
-
-        Node(char ch, int freq, Node left, Node right) {
-            this.ch    = ch;
-            this.freq  = freq;
-            this.left  = left;
-            this.right = right;
-        }
 
-        // is the node a leaf node?
-        private boolean isLeaf() {
-            assert (left == null && right == null) || (left != null && right != null);
-            return (left == null && right == null);
-        }
+    public static boolean logging = true;
 
-        // compare, based on frequency
-        public int compareTo(Node that) {
-            return this.freq - that.freq;
-        }
-    }
+    // longest code allowed, 0 for no limit (set with -m)
+    public static int maxCodeLength = 0;
+    private static BinaryOut out;
 
     public static void err_print(String msg){
         if (logging)
@@ -67,109 +50,32 @@ public class HelperArcH {
             System.err.println(msg);
     }
 
-    // compress bytes from standard input and write to standard output
-    public static void compress() {
-
-        if (in.isEmpty()) return;
+    // compress a file in two buffered passes: count, then encode
+    public static void compress(String filepath) {
 
-        // read the input
-        String s = in.readString();
-        char[] input = s.toCharArray();
-
-        // tabulate frequency counts
+        // first pass: tabulate frequency counts
         int[] freq = new int[R];
-        for (int i = 0; i < input.length; i++)
-            freq[input[i]]++;
+        int size = SchubsH.countFrequencies(filepath, freq);
+        if (size == 0) return;
 
-        // build Huffman trie
-        Node root = buildTrie(freq);
+        // build code table (a lone symbol is a one leaf trie, coded with 0 bits)
+        int[] length = SchubsH.codeLengths(freq, maxCodeLength, logging);
+        long[] code = CanonicalHuffman.assignCodes(length);
 
-        // build code table
-        String[] st = new String[R];
-        buildCode(st, root, "");
+        // everything goes through one BitWriter so no bit is written on its own
+        BitWriter bits = new BitWriter(out);
 
         // print trie for decoder
-        writeTrie(root);
-        // err_println("writeTrie");
+        SchubsH.writeTrie(bits, length, code);
 
         // print number of bytes in original uncompressed message
-        out.write(input.length);
-        // err_println("writing input length " + input.length);
-
-        // err_println("happily encoding... ");
-        // String compressed = "";
-        // use Huffman code to encode input
-        for (int i = 0; i < input.length; i++) {
-            String code = st[input[i]];
-            // err_print("Char " + input[i] + " ");
-            for (int j = 0; j < code.length(); j++) {
-                if (code.charAt(j) == '0') {
-                    out.write(false);
-                    // compressed += "0";
-                    // err_print("0");
-                }
-                else if (code.charAt(j) == '1') {
-                    out.write(true);
-                    // compressed += "1";
-                    // err_print("1");
-                }
-                else throw new RuntimeException("Illegal state");
-            }
-            // err_println("");
-        }
+        bits.write(size);
 
-        // System.out.println(compressed);
+        // second pass: use Huffman code to encode input
+        SchubsH.encode(bits, filepath, size, length, code);
 
         // flush output stream
-        out.flush();
-    }
-
-    // build the Huffman trie given frequencies
-    private static Node buildTrie(int[] freq) {
-
-        // initialze priority queue with singleton trees
-        MinPQ<Node> pq = new MinPQ<Node>();
-        for (char i = 0; i < R; i++)
-            if (freq[i] > 0)
-                pq.insert(new Node(i, freq[i], null, null));
-
-        // merge two smallest trees
-        while (pq.size() > 1) {
-            Node left  = pq.delMin();
-            Node right = pq.delMin();
-            Node parent = new Node('\0', left.freq + right.freq, left, right);
-            //err_println("buildTrie parent " + left.freq + " " + right.freq);
-            pq.insert(parent);
-        }
-        return pq.delMin();
-    }
-
-
-    // write bitstring-encoded trie to standard output
-    private static void writeTrie(Node x) {
-        if (x.isLeaf()) {
-            out.write(true);
-            out.write(x.ch);
-            //err_println("T" + x.ch);
-            return;
-        }
-        out.write(false);
-        //err_print("F");
-
-        writeTrie(x.left);
-        writeTrie(x.right);
-    }
-
-    // make a lookup table from symbols and their encodings
-    private static void buildCode(String[] st, Node x, String s) {
-        if (!x.isLeaf()) {
-            buildCode(st, x.left,  s + '0');
-            buildCode(st, x.right, s + '1');
-        }
-        else {
-            st[x.ch] = s;
-            //err_println("buildCode " + x.ch + " " + s);
-        }
+        bits.flush();
     }
 
     public static void main(String[] args) {
@@ -182,23 +88,27 @@ public class HelperArcH {
         // iterate through arguments and compress each one into their
         // own respective file
         //for (int i = 0; i < args.length; i++) {
+            out = null;
             try {
                 // check if file exists
                 File file = new File(args[0]);
                 //if (!file.exists()) break;
 
-                // create input stream
-                in = new BinaryIn(args[0]);
-
-                // create output stream
+                // create output stream (the input is opened once per pass)
                 out = new BinaryOut(args[0] + ".zh");
 
                 // compress
-                compress();
+                compress(args[0]);
+            } catch (RuntimeException e) {
+                // do not leave a truncated archive behind
+                if (out != null) {
+                    out.close();
+                    out = null;
+                    new File(args[0] + ".zh").delete();
+                }
+                throw e;
             } finally {
-                // close streams
-                if (in != null)
-                    in.close();
+                // close streams (each pass closes its own input)
                 if (out != null)
                     out.close();
             }
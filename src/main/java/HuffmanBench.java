@@ -0,0 +1,104 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *  Assignment: Final Compression Project
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: HuffmanBench
+ *  Dependencies: HuffmanBlocks.java
+ *
+ *  ------------- CLI -------------
+ *  Times the block decoders on one thread, one stream per block against
+ *  4 interleaved streams per block (SchubsH -b against SchubsH -4).
+ *
+ *  To Run
+ *      > mvn compile
+ *      > java -cp target/classes HuffmanBench <filename> [rounds]
+ *
+ *  Output (one line per decoder)
+ *      1 stream   <compressed bytes>   <MB/s of output>
+ *      4 streams  <compressed bytes>   <MB/s of output>
+ *      checksum   <sum over every decoded round, only there to be used>
+ *
+ * ------------- DESIGN -------------
+ *  Overview
+ *      The file is cut into blocks the same way HuffmanBlocks does, every block
+ *      is compressed in both layouts, and then each layout is decoded
+ *      "rounds" times (default 10) after the same number of warm-up rounds, so
+ *      the JIT has compiled the decode loops before they are timed. The two
+ *      decoders take turns and the fastest round of each is reported, which
+ *      keeps GC pauses and other noise out of the comparison. Only the
+ *      decoding of blocks already in memory is timed, no file I/O.
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+public class HuffmanBench {
+
+    // every decode() result is added in and printed, so none of them is dead code
+    private static long checksum = 0;
+
+    public static void main(String[] args) throws IOException {
+
+        if (args.length == 0) {
+            System.out.println("Please enter a file to benchmark");
+            return;
+        }
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        byte[] data = Files.readAllBytes(Paths.get(args[0]));
+        int blocks = (data.length + HuffmanBlocks.BLOCK_SIZE - 1) / HuffmanBlocks.BLOCK_SIZE;
+        byte[][] single = new byte[blocks][];
+        byte[][] interleaved = new byte[blocks][];
+        int[] n = new int[blocks];
+        long singleBytes = 0, interleavedBytes = 0;
+        for (int b = 0; b < blocks; b++) {
+            int from = b * HuffmanBlocks.BLOCK_SIZE;
+            byte[] block = Arrays.copyOfRange(data, from, Math.min(data.length, from + HuffmanBlocks.BLOCK_SIZE));
+            n[b] = block.length;
+            single[b] = HuffmanBlocks.compressBlock(block, n[b], 0);
+            interleaved[b] = HuffmanBlocks.compressBlock4(block, n[b], 0);
+            singleBytes += single[b].length;
+            interleavedBytes += interleaved[b].length;
+        }
+
+        // warm up both decoders, then time them in turns and keep the best round
+        for (int r = 0; r < rounds; r++) {
+            checksum += decode(single, n, false);
+            checksum += decode(interleaved, n, true);
+        }
+        double singleRate = 0, interleavedRate = 0;
+        for (int r = 0; r < rounds; r++) {
+            singleRate = Math.max(singleRate, rate(data.length, single, n, false));
+            interleavedRate = Math.max(interleavedRate, rate(data.length, interleaved, n, true));
+        }
+
+        System.out.println(String.format("1 stream   %12d   %8.1f MB/s", singleBytes, singleRate));
+        System.out.println(String.format("4 streams  %12d   %8.1f MB/s", interleavedBytes, interleavedRate));
+        System.out.println("checksum   " + checksum);
+    }
+
+    // MB of output per second of one round
+    private static double rate(long size, byte[][] blocks, int[] n, boolean interleaved) {
+        long start = System.nanoTime();
+        checksum += decode(blocks, n, interleaved);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return size / seconds / (1 << 20);
+    }
+
+    // decode every block once, returning a checksum for the caller to keep
+    private static long decode(byte[][] blocks, int[] n, boolean interleaved) {
+        long sum = 0;
+        for (int b = 0; b < blocks.length; b++) {
+            byte[] data = interleaved ? HuffmanBlocks.expandBlock4(blocks[b], n[b])
+                                      : HuffmanBlocks.expandBlock(blocks[b], n[b]);
+            sum += data[data.length - 1];
+        }
+        return sum;
+    }
+}
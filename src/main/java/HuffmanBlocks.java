@@ -0,0 +1,277 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *  Assignment: Final Compression Project
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: HuffmanBlocks
+ *  Dependencies: BinaryIn.java BinaryOut.java BitReader.java BitWriter.java
+ *                BlockFile.java CanonicalHuffman.java HuffmanLengths.java
+ *
+ *  ------------- CLI -------------
+ *  This file is not meant to be run from CLI (see SchubsH -b)
+ *
+ * ------------- DESIGN -------------
+ *  Overview
+ *      The block layout of a .hc file. The input is cut into fixed size blocks
+ *      (BLOCK_SIZE bytes, the last one may be shorter) and every block gets its
+ *      own canonical code, so the code follows the data when its statistics
+ *      change, and every block can be compressed and expanded on its own.
+ *
+ *  Block Layout
+ *      - (8 bits) layout (CanonicalHuffman.BLOCKS)
+ *      - (int) block size
+ *      - (long) number of bytes in original uncompressed message
+ *      - for each block
+ *          - (int) number of compressed bytes c that follow
+ *          - c bytes: code length header, then the encoded block, padded to a byte
+ *      - index: (long) file offset of each block's (int) size
+ *      - (long) file offset of the index
+ *
+ *  Interleaved Streams (CanonicalHuffman.BLOCKS_X4)
+ *      Same file layout, but byte i of a block is coded into stream i % 4:
+ *          - (4 ints) jump table: byte length of the code length header and of
+ *            streams 0, 1 and 2 (stream 3 runs to the end of the block)
+ *          - the code length header, padded to a byte
+ *          - the 4 streams, each padded to a byte
+ *      A single stream is one long dependency chain: the position of the next
+ *      code is only known once the current one is decoded. With 4 streams the
+ *      decode loop reads one symbol from each in turn, and the 4 lookups do
+ *      not depend on each other, so the CPU can overlap them. It costs 16
+ *      bytes and a little padding per block.
+ *
+ *  Process
+ *      The blocks are compressed and expanded on a thread pool, and the index
+ *      lets readBlock() decode any single block without reading the ones
+ *      before it (see BlockFile, the container the block layouts share).
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import sedgewick.*;
+
+public class HuffmanBlocks {
+
+    // bytes of input per block
+    public static final int BLOCK_SIZE = 1 << 20;
+
+    private static final int R = 256;
+
+    // bitstreams per block in the BLOCKS_X4 layout
+    public static final int STREAMS = 4;
+
+    // -------------------------- ONE BLOCK -------------------------- //
+
+    // compress data[0..n) into a self-contained block: code lengths, then codes
+    // (maxCodeLength 0 means no limit)
+    public static byte[] compressBlock(byte[] data, int n, int maxCodeLength) {
+        int[] freq = new int[R];
+        for (int i = 0; i < n; i++)
+            freq[data[i] & 0xff]++;
+
+        int[] length = maxCodeLength > 0 ? HuffmanLengths.packageMerge(freq, maxCodeLength)
+                                         : HuffmanLengths.huffman(freq);
+        long[] code = CanonicalHuffman.assignCodes(length);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(n / 2 + 64);
+        BinaryOut blockOut = new BinaryOut(bytes);
+        BitWriter bits = new BitWriter(blockOut);
+        CanonicalHuffman.writeLengths(bits, length);
+
+        // a lone symbol is coded with 0 bits
+        if (CanonicalHuffman.loneSymbol(length) == -1) {
+            int[] packed = BitWriter.pack(length, code);
+            if (packed != null) {
+                for (int i = 0; i < n; i++)
+                    bits.writeCode(packed[data[i] & 0xff]);
+            }
+            else {
+                for (int i = 0; i < n; i++)
+                    bits.writeCode(code[data[i] & 0xff], length[data[i] & 0xff]);
+            }
+        }
+        bits.flush();
+        blockOut.close();
+        return bytes.toByteArray();
+    }
+
+    // expand a block made by compressBlock back into its n bytes
+    public static byte[] expandBlock(byte[] block, int n) {
+        BitReader bits = new BitReader(block, 0, block.length);
+        int[] length = CanonicalHuffman.readLengths(bits);
+        byte[] data = new byte[n];
+
+        int lone = CanonicalHuffman.loneSymbol(length);
+        if (lone != -1) {
+            Arrays.fill(data, (byte) lone);
+            return data;
+        }
+
+        CanonicalHuffman decoder = new CanonicalHuffman(length);
+        for (int i = 0; i < n; i++)
+            data[i] = (byte) decoder.decode(bits);
+        return data;
+    }
+
+    // compress data[0..n) into a block of STREAMS interleaved bitstreams
+    // that share one code (maxCodeLength 0 means no limit)
+    public static byte[] compressBlock4(byte[] data, int n, int maxCodeLength) {
+        int[] freq = new int[R];
+        for (int i = 0; i < n; i++)
+            freq[data[i] & 0xff]++;
+
+        int[] length = maxCodeLength > 0 ? HuffmanLengths.packageMerge(freq, maxCodeLength)
+                                         : HuffmanLengths.huffman(freq);
+        long[] code = CanonicalHuffman.assignCodes(length);
+
+        // part 0 is the code length header, parts 1 to STREAMS are the streams
+        ByteArrayOutputStream[] parts = new ByteArrayOutputStream[STREAMS + 1];
+        BinaryOut[] partOut = new BinaryOut[STREAMS + 1];
+        BitWriter[] bits = new BitWriter[STREAMS + 1];
+        for (int k = 0; k <= STREAMS; k++) {
+            parts[k] = new ByteArrayOutputStream(k == 0 ? 256 : n / (2 * STREAMS) + 64);
+            partOut[k] = new BinaryOut(parts[k]);
+            bits[k] = new BitWriter(partOut[k]);
+        }
+        CanonicalHuffman.writeLengths(bits[0], length);
+
+        // a lone symbol is coded with 0 bits, so every stream is empty
+        if (CanonicalHuffman.loneSymbol(length) == -1) {
+            int[] packed = BitWriter.pack(length, code);
+            if (packed != null) {
+                for (int i = 0; i < n; i++)
+                    bits[1 + i % STREAMS].writeCode(packed[data[i] & 0xff]);
+            }
+            else {
+                for (int i = 0; i < n; i++)
+                    bits[1 + i % STREAMS].writeCode(code[data[i] & 0xff], length[data[i] & 0xff]);
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(n / 2 + 64);
+        BinaryOut blockOut = new BinaryOut(bytes);
+        byte[][] part = new byte[STREAMS + 1][];
+        for (int k = 0; k <= STREAMS; k++) {
+            bits[k].flush();
+            partOut[k].close();
+            part[k] = parts[k].toByteArray();
+        }
+        for (int k = 0; k < STREAMS; k++)
+            blockOut.write(part[k].length);
+        for (int k = 0; k <= STREAMS; k++)
+            blockOut.write(part[k], 0, part[k].length);
+        blockOut.close();
+        return bytes.toByteArray();
+    }
+
+    // expand a block made by compressBlock4 back into its n bytes, decoding
+    // one symbol from each stream per pass of the loop
+    public static byte[] expandBlock4(byte[] block, int n) {
+        // jump table
+        int[] start = new int[STREAMS + 2];
+        start[0] = 4 * STREAMS;
+        for (int k = 0; k < STREAMS; k++) {
+            int j = 4 * k;
+            int len = ((block[j] & 0xff) << 24) | ((block[j + 1] & 0xff) << 16)
+                    | ((block[j + 2] & 0xff) << 8) | (block[j + 3] & 0xff);
+            if (len < 0 || start[k] + len > block.length)
+                throw new RuntimeException("Invalid stream jump table");
+            start[k + 1] = start[k] + len;
+        }
+        start[STREAMS + 1] = block.length;
+
+        BitReader header = new BitReader(block, start[0], start[1] - start[0]);
+        int[] length = CanonicalHuffman.readLengths(header);
+        byte[] data = new byte[n];
+
+        int lone = CanonicalHuffman.loneSymbol(length);
+        if (lone != -1) {
+            Arrays.fill(data, (byte) lone);
+            return data;
+        }
+
+        CanonicalHuffman decoder = new CanonicalHuffman(length);
+        BitReader s0 = new BitReader(block, start[1], start[2] - start[1]);
+        BitReader s1 = new BitReader(block, start[2], start[3] - start[2]);
+        BitReader s2 = new BitReader(block, start[3], start[4] - start[3]);
+        BitReader s3 = new BitReader(block, start[4], start[5] - start[4]);
+
+        int i = 0;
+        for (int end = n - STREAMS; i <= end; i += STREAMS) {
+            data[i]     = (byte) decoder.decode(s0);
+            data[i + 1] = (byte) decoder.decode(s1);
+            data[i + 2] = (byte) decoder.decode(s2);
+            data[i + 3] = (byte) decoder.decode(s3);
+        }
+        if (i < n) data[i++] = (byte) decoder.decode(s0);
+        if (i < n) data[i++] = (byte) decoder.decode(s1);
+        if (i < n) data[i]   = (byte) decoder.decode(s2);
+        return data;
+    }
+
+    // the blocks of a layout, coded with at most maxCodeLength bits (0: no
+    // limit; expanding does not need it)
+    private static BlockFile.Coder coder(final int layout, final int maxCodeLength) {
+        if (layout != CanonicalHuffman.BLOCKS && layout != CanonicalHuffman.BLOCKS_X4)
+            throw new RuntimeException("Not a block layout: " + layout);
+        return new BlockFile.Coder() {
+            public byte[] compress(byte[] data, int n) {
+                return layout == CanonicalHuffman.BLOCKS_X4 ? compressBlock4(data, n, maxCodeLength)
+                                                            : compressBlock(data, n, maxCodeLength);
+            }
+
+            public byte[] expand(byte[] block, int n) {
+                return layout == CanonicalHuffman.BLOCKS_X4 ? expandBlock4(block, n) : expandBlock(block, n);
+            }
+        };
+    }
+
+    // -------------------------- WHOLE FILE -------------------------- //
+
+    // compress a file block by block on a pool of threads
+    public static void compress(String filepath, BinaryOut out, int maxCodeLength, int threads) {
+        compress(filepath, out, CanonicalHuffman.BLOCKS, maxCodeLength, threads);
+    }
+
+    // same, with layout BLOCKS (one stream per block) or BLOCKS_X4 (interleaved streams)
+    public static void compress(String filepath, BinaryOut out, int layout, int maxCodeLength, int threads) {
+        BlockFile.compress(filepath, out, new byte[] { (byte) layout }, BLOCK_SIZE,
+                           coder(layout, maxCodeLength), threads);
+    }
+
+    // expand a block layout file (after its layout byte) on a pool of threads
+    public static void expand(BinaryIn in, BinaryOut out, int layout, int threads) {
+        BlockFile.expand(in, out, coder(layout, 0), threads);
+    }
+
+    // -------------------------- RANDOM ACCESS -------------------------- //
+
+    // number of blocks in a block layout .hc file
+    public static int blockCount(String filepath) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(filepath, "r");
+        try {
+            file.seek(1);
+            return BlockFile.blockCount(file);
+        } finally {
+            file.close();
+        }
+    }
+
+    // decode block i of a block layout .hc file without reading the blocks before it
+    public static byte[] readBlock(String filepath, int i) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(filepath, "r");
+        try {
+            int layout = file.readUnsignedByte();
+            if (layout != CanonicalHuffman.BLOCKS && layout != CanonicalHuffman.BLOCKS_X4)
+                throw new RuntimeException(filepath + " does not use the block layout");
+            return BlockFile.readBlock(file, filepath, i, coder(layout, 0));
+        } finally {
+            file.close();
+        }
+    }
+}
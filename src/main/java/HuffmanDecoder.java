@@ -0,0 +1,146 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *  Assignment: Final Compression Project
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: HuffmanDecoder
+ *  Dependencies: BitReader.java
+ *
+ *  ------------- CLI -------------
+ *  This file is not meant to be run from CLI
+ *
+ * ------------- DESIGN -------------
+ *  Overview
+ *      Table-driven Huffman decoding. Instead of walking the trie one bit at a
+ *      time, the decoder peeks ROOT_BITS bits and looks them up in a table
+ *      whose entry holds both the symbol and how many of those bits its code
+ *      really used.
+ *
+ *  Process
+ *      Each symbol's code (length and bits) is inserted into a small binary
+ *      trie. The trie is then flattened into one int[]:
+ *          - the first 2^ROOT_BITS entries are indexed by the next ROOT_BITS bits
+ *          - a code shorter than the table width fills every entry that starts
+ *            with it (2^(width - length) of them)
+ *          - a code longer than the table width gets a link to a second-level
+ *            table indexed by the bits after the first ROOT_BITS (and so on,
+ *            so codes of any length decode in a handful of lookups)
+ *
+ *      Entry layout
+ *          - leaf:    (symbol << 8) | bits used at this level
+ *          - link:    LINK | (offset of sub-table << 4) | sub-table width
+ *          - invalid: -1 (only reachable with a corrupt header)
+ */
+
+import java.util.Arrays;
+
+public class HuffmanDecoder {
+
+    // width of the first level lookup table
+    public static final int ROOT_BITS = 11;
+
+    private static final int LINK = 1 << 30;
+    private static final int INVALID = -1;
+
+    private final int rootBits;
+    private int[] table = new int[1 << 6];
+    private int size;
+
+    // temporary trie used while the table is built
+    private int[] zero, one, symbol, depth;
+    private int nodes;
+
+    /**
+     * Builds the decoding table.
+     * @param length code length of each symbol, 0 if the symbol does not occur
+     * @param code   code of each symbol, right-aligned in the low length bits
+     */
+    public HuffmanDecoder(int[] length, long[] code) {
+        int R = length.length;
+        zero   = new int[2 * R + 1];
+        one    = new int[2 * R + 1];
+        symbol = new int[2 * R + 1];
+        depth  = new int[2 * R + 1];
+        Arrays.fill(symbol, -1);
+        nodes = 1;
+
+        for (int s = 0; s < R; s++)
+            if (length[s] > 0)
+                insert(s, length[s], code[s]);
+        if (nodes == 1) throw new RuntimeException("Huffman code table is empty");
+
+        rootBits = Math.min(ROOT_BITS, depth[0]);
+        buildTable(0, rootBits);
+
+        // the trie is only needed to lay out the table
+        zero = one = symbol = depth = null;
+    }
+
+    // add one code to the trie, tracking the deepest leaf below every node
+    private void insert(int s, int len, long c) {
+        if (len > 63) throw new RuntimeException("Huffman code too long: " + len);
+        int x = 0;
+        for (int i = len - 1; i >= 0; i--) {
+            if (depth[x] < i + 1) depth[x] = i + 1;
+            boolean bit = ((c >>> i) & 1) == 1;
+            int next = bit ? one[x] : zero[x];
+            if (next == 0) {
+                if (nodes == symbol.length) throw new RuntimeException("Invalid Huffman code table");
+                next = nodes++;
+                if (bit) one[x] = next;
+                else     zero[x] = next;
+            }
+            x = next;
+            if (symbol[x] != -1) throw new RuntimeException("Invalid Huffman code table");
+        }
+        if (zero[x] != 0 || one[x] != 0)
+            throw new RuntimeException("Invalid Huffman code table");
+        symbol[x] = s;
+    }
+
+    // lay out a table of 2^width entries for the subtrie rooted at node x
+    private int buildTable(int x, int width) {
+        int offset = size;
+        int n = 1 << width;
+        if (size + n > table.length)
+            table = Arrays.copyOf(table, Math.max(table.length * 2, size + n));
+        Arrays.fill(table, offset, offset + n, INVALID);
+        size += n;
+        fill(x, 0, 0, offset, width);
+        return offset;
+    }
+
+    private void fill(int x, int d, int index, int offset, int width) {
+        if (symbol[x] != -1) {
+            int entry = (symbol[x] << 8) | d;
+            int first = index << (width - d);
+            Arrays.fill(table, offset + first, offset + first + (1 << (width - d)), entry);
+        }
+        else if (d == width) {
+            int subWidth = Math.min(ROOT_BITS, depth[x]);
+            int sub = buildTable(x, subWidth);
+            table[offset + index] = LINK | (sub << 4) | subWidth;
+        }
+        else {
+            if (zero[x] != 0) fill(zero[x], d + 1, index << 1,       offset, width);
+            if (one[x]  != 0) fill(one[x],  d + 1, (index << 1) | 1, offset, width);
+        }
+    }
+
+    // decode one symbol, consuming exactly the bits of its code
+    public int decode(BitReader in) {
+        int width = rootBits;
+        int entry = table[in.peek(width)];
+        while (entry >= LINK) {
+            in.consume(width);
+            width = entry & 0xf;
+            entry = table[((entry & ~LINK) >>> 4) + in.peek(width)];
+        }
+        if (entry == INVALID) throw new RuntimeException("Invalid Huffman code in input");
+        in.consume(entry & 0xff);
+        return entry >>> 8;
+    }
+}
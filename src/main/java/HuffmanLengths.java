@@ -0,0 +1,206 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *  Assignment: Final Compression Project
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: HuffmanLengths
+ *  Dependencies: none
+ *
+ *  ------------- CLI -------------
+ *  This file is not meant to be run from CLI
+ *
+ * ------------- DESIGN -------------
+ *  Overview
+ *      Computes Huffman code lengths straight from a frequency table. The
+ *      length of each symbol's code is all a canonical code needs, and it is
+ *      enough to rebuild a trie for the .hh and .zh formats.
+ *
+ *  Unlimited Codes (two queues)
+ *      huffman() builds the plain Huffman code without a priority queue or a
+ *      node object: the leaves are sorted by frequency once, and the merged
+ *      nodes come out in increasing weight, so they form a second sorted
+ *      queue. Each step takes the two lightest heads of the two queues. Nodes
+ *      are array indexes (leaves 0..n-1, merged nodes n..2n-2) and only a
+ *      parent index is kept per node; depths are filled in from the root down.
+ *      After the sort this is O(n).
+ *
+ *  Length-Limited Codes (package-merge)
+ *      A plain Huffman trie can get very deep on skewed input. Package-merge
+ *      finds the cheapest code whose lengths are all at most maxLength:
+ *          1. sort the symbols by frequency (these are the "leaves")
+ *          2. maxLength - 1 times: pair up neighbouring items of the current
+ *             list into packages (weight = sum of the pair) and merge the
+ *             packages back with the leaves, keeping the list sorted
+ *          3. take the first 2n - 2 items of the last list; a symbol's code
+ *             length is the number of those items it appears in
+ *      Because the chosen items on every level are a prefix of that level's
+ *      list, step 3 only has to remember, per level, which items are leaves.
+ *
+ *  Trade-Offs
+ *      A limit only costs ratio when the unlimited code is deeper than the
+ *      limit. cost() lets callers report how many bits the limit added.
+ */
+
+import java.util.Arrays;
+
+public class HuffmanLengths {
+
+    // longest code length package-merge will build
+    public static final int MAX_LENGTH = 62;
+
+    /**
+     * Code lengths of a Huffman code (no length limit). A lone symbol gets
+     * length 1.
+     * @param freq frequency of each symbol (0 if it does not occur)
+     * @return the code length of each symbol, 0 for symbols that do not occur
+     */
+    public static int[] huffman(int[] freq) {
+        int R = freq.length;
+        int[] length = new int[R];
+
+        // the leaves, sorted by frequency (ties by symbol)
+        int n = 0;
+        long[] keys = new long[R];
+        for (int s = 0; s < R; s++)
+            if (freq[s] > 0)
+                keys[n++] = ((long) freq[s] << 9) | s;
+        if (n == 0) return length;
+        if (n == 1) {
+            length[(int) (keys[0] & 0x1ff)] = 1;
+            return length;
+        }
+        Arrays.sort(keys, 0, n);
+
+        long[] weight = new long[2 * n - 1];
+        int[] parent = new int[2 * n - 1];
+        for (int i = 0; i < n; i++)
+            weight[i] = keys[i] >>> 9;
+
+        // leaf is the head of the leaf queue, node the head of the merged queue
+        int leaf = 0, node = n;
+        for (int next = n; next < 2 * n - 1; next++) {
+            long sum = 0;
+            for (int k = 0; k < 2; k++) {
+                int x = leaf < n && (node == next || weight[leaf] <= weight[node]) ? leaf++ : node++;
+                parent[x] = next;
+                sum += weight[x];
+            }
+            weight[next] = sum;
+        }
+
+        // the root is the last node; every other node is one deeper than its
+        // parent, which has a higher index, so depths can overwrite parents
+        int[] depth = parent;
+        depth[2 * n - 2] = 0;
+        for (int x = 2 * n - 3; x >= 0; x--)
+            depth[x] = depth[parent[x]] + 1;
+        for (int i = 0; i < n; i++)
+            length[(int) (keys[i] & 0x1ff)] = depth[i];
+        return length;
+    }
+
+    /**
+     * Code lengths of the cheapest prefix code whose codes are at most
+     * maxLength bits. A lone symbol gets length 1.
+     * @param freq frequency of each symbol (0 if it does not occur)
+     * @param maxLength longest code allowed
+     * @return the code length of each symbol, 0 for symbols that do not occur
+     */
+    public static int[] packageMerge(int[] freq, int maxLength) {
+        int R = freq.length;
+        int[] length = new int[R];
+
+        // the leaves, sorted by frequency (ties by symbol)
+        int n = 0;
+        long[] keys = new long[R];
+        for (int s = 0; s < R; s++)
+            if (freq[s] > 0)
+                keys[n++] = ((long) freq[s] << 9) | s;
+        keys = Arrays.copyOf(keys, n);
+        Arrays.sort(keys);
+        long[] leafWeight = new long[n];
+        int[] leafSymbol = new int[n];
+        for (int i = 0; i < n; i++) {
+            leafWeight[i] = keys[i] >>> 9;
+            leafSymbol[i] = (int) (keys[i] & 0x1ff);
+        }
+
+        if (n == 0) return length;
+        if (n == 1) {
+            length[leafSymbol[0]] = 1;
+            return length;
+        }
+        if (maxLength > MAX_LENGTH || (1L << maxLength) < n)
+            throw new RuntimeException("Cannot fit " + n + " symbols in codes of at most " + maxLength + " bits");
+
+        // isLeaf[level][i] tells whether item i of that level's list is a leaf
+        boolean[][] isLeaf = new boolean[maxLength][];
+        isLeaf[0] = new boolean[n];
+        Arrays.fill(isLeaf[0], true);
+        long[] weight = leafWeight;
+
+        for (int level = 1; level < maxLength; level++) {
+            int packages = weight.length / 2;
+            int size = n + packages;
+            long[] merged = new long[size];
+            boolean[] leaf = new boolean[size];
+
+            // merge the leaves with the packages of the previous list
+            int i = 0, j = 0;
+            for (int k = 0; k < size; k++) {
+                long packageWeight = j < packages ? weight[2 * j] + weight[2 * j + 1] : Long.MAX_VALUE;
+                if (i < n && leafWeight[i] <= packageWeight) {
+                    merged[k] = leafWeight[i++];
+                    leaf[k] = true;
+                }
+                else {
+                    merged[k] = packageWeight;
+                    j++;
+                }
+            }
+            isLeaf[level] = leaf;
+            weight = merged;
+        }
+
+        // walk down from the last list: the first "selected" items of every
+        // level are chosen, and each chosen package selects two items below
+        int selected = 2 * n - 2;
+        for (int level = maxLength - 1; level >= 0; level--) {
+            int leaves = 0;
+            for (int k = 0; k < selected; k++)
+                if (isLeaf[level][k])
+                    length[leafSymbol[leaves++]]++;
+            selected = 2 * (selected - leaves);
+        }
+        return length;
+    }
+
+    // total number of bits the codes spend on the whole input
+    public static long cost(int[] freq, int[] length) {
+        long bits = 0;
+        for (int s = 0; s < freq.length; s++)
+            bits += (long) freq[s] * length[s];
+        return bits;
+    }
+
+    // longest code length in the table
+    public static int maxLength(int[] length) {
+        int max = 0;
+        for (int s = 0; s < length.length; s++)
+            max = Math.max(max, length[s]);
+        return max;
+    }
+
+    // one line describing what a length limit cost compared to an unlimited code
+    public static String describeLimit(int[] freq, int[] limited, int maxLength) {
+        int[] optimal = huffman(freq);
+        long limitedBits = cost(freq, limited);
+        long optimalBits = cost(freq, optimal);
+        double percent = optimalBits == 0 ? 0.0 : 100.0 * (limitedBits - optimalBits) / optimalBits;
+        return String.format("max code length %d (unlimited %d): %d bits of codes vs %d, +%.3f%%",
+                             maxLength, maxLength(optimal), limitedBits, optimalBits, percent);
+    }
+}
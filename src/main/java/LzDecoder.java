@@ -0,0 +1,82 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *  Assignment: Final Compression Project
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: LzDecoder
+ *  Dependencies: BinaryOut.java
+ *
+ *  ------------- CLI -------------
+ *  This file is not meant to be run from CLI (see Deschubs)
+ *
+ * ------------- DESIGN -------------
+ *  Overview
+ *      The output side of an LZ77 expander: a literal is one byte stored, a
+ *      match is a copy of bytes already written, so expanding does no search
+ *      and builds no table.
+ *
+ *  Process
+ *      Output goes into a buffer of two windows. A match whose source does not
+ *      overlap its destination is one System.arraycopy; a closer one (a run,
+ *      distance < length) is copied a byte at a time, front to back, so it
+ *      repeats the bytes it has just written. When a match would not fit, the
+ *      buffer is written out and its last window moves to the front, still
+ *      there for the matches that follow.
+ */
+
+import sedgewick.*;
+
+public class LzDecoder {
+
+    private final BinaryOut out;
+    private final byte[] buf;           // two windows of output
+    private final int window;
+    private int pos;                    // end of the output in buf
+    private int written;                // bytes of buf already written out
+
+    // an output window of 2^windowBits bytes
+    public LzDecoder(int windowBits, BinaryOut out) {
+        this.out = out;
+        window = 1 << windowBits;
+        buf = new byte[2 * window];
+    }
+
+    public void literal(int c) {
+        if (pos == buf.length) slide();
+        buf[pos++] = (byte) c;
+    }
+
+    // repeat the "length" bytes that start "distance" bytes back
+    public void copy(int distance, int length) {
+        if (pos + length > buf.length) slide();
+        if (distance <= 0 || distance > pos || distance >= window)
+            throw new RuntimeException("Invalid LZ distance " + distance);
+        int from = pos - distance;
+        if (distance >= length) {
+            System.arraycopy(buf, from, buf, pos, length);
+        }
+        else {
+            for (int i = 0; i < length; i++)
+                buf[pos + i] = buf[from + i];
+        }
+        pos += length;
+    }
+
+    // write out every byte expanded so far
+    public void flush() {
+        out.write(buf, written, pos - written);
+        written = pos;
+        out.flush();
+    }
+
+    // write the buffer out and keep its last window at the front
+    private void slide() {
+        out.write(buf, written, pos - written);
+        System.arraycopy(buf, pos - window, buf, 0, window);
+        pos = window;
+        written = window;
+    }
+}
@@ -0,0 +1,247 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *  Assignment: Final Compression Project
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: LzHuffman
+ *  Dependencies: BitWriter.java BitReader.java HuffmanLengths.java
+ *                CanonicalHuffman.java LzMatchFinder.java LzDecoder.java
+ *
+ *  ------------- CLI -------------
+ *  This file is not meant to be run from CLI (see SchubsZ -h)
+ *
+ * ------------- DESIGN -------------
+ *  Overview
+ *      The entropy stage of the .lh format, the way DEFLATE (gzip) does it:
+ *      the literals and matches an LZ77 parse makes are Huffman coded instead
+ *      of written in fixed width fields, so common bytes, lengths and
+ *      distances take fewer bits. The codes are made per block, from the
+ *      block's own counts, so they follow the data and a block can be written
+ *      as soon as it is full.
+ *
+ *  Symbols
+ *      - literal/length alphabet (286 symbols): bytes 0 to 255, END (256, the
+ *        end of a block) and 29 length codes (257 to 285) for 3 to 258
+ *      - distance alphabet (2n symbols for a window of 2^n bytes): codes 0 to
+ *        3 are distances 1 to 4, after that every power of two is split into
+ *        two codes
+ *      Every length or distance code stands for a range of values, and the
+ *      value within the range follows the code as extra bits, as in DEFLATE
+ *      (RFC 1951, 3.2.5).
+ *
+ *  .lh Block
+ *      - (1 bit) 1 if this is the last block
+ *      - code length header of the literal/length code (see CanonicalHuffman)
+ *      - code length header of the distance code
+ *      - the block's symbols, each followed by its extra bits, a length by
+ *        its distance, then END
+ *
+ *  Process
+ *      The compressor keeps up to BLOCK_TOKENS literals and matches in an int
+ *      array. When it is full (or the input ends) their symbols are counted,
+ *      HuffmanLengths.packageMerge turns the counts into code lengths of at
+ *      most MAX_CODE_LENGTH bits, the block is written with the canonical
+ *      codes for those lengths, and the whole bytes are passed on.
+ *
+ *      The code lengths of the block just written are kept as the price (in
+ *      bits) of each symbol, so an optimal parse can weigh a literal against
+ *      a match by what it will probably cost (see LzParser).
+ *
+ *      The expander reads the two headers into CanonicalHuffman decoders and
+ *      hands every literal and match to an LzDecoder.
+ *
+ *  Trade-Offs
+ *      Two headers per block cost a few hundred bits, so blocks are large;
+ *      the codes cannot change inside one, even where the data does.
+ */
+
+import java.util.Arrays;
+
+public class LzHuffman {
+
+    // literals and matches per block
+    public static final int BLOCK_TOKENS = 1 << 16;
+
+    // longest code, as in DEFLATE; the decoders resolve most codes in one lookup
+    public static final int MAX_CODE_LENGTH = 15;
+
+    private static final int R = 256;
+    private static final int END = R;
+    private static final int LITERAL_LENGTH_SYMBOLS = R + 1 + 29;
+
+    // first length and number of extra bits of each length code
+    private static final int[] LENGTH_BASE = {
+        3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31,
+        35, 43, 51, 59, 67, 83, 99, 115, 131, 163, 195, 227, 258 };
+    private static final int[] LENGTH_EXTRA = {
+        0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2,
+        3, 3, 3, 3, 4, 4, 4, 4, 5, 5, 5, 5, 0 };
+
+    // length code of each match length
+    private static final int[] LENGTH_CODE = new int[LzMatchFinder.MAX_MATCH + 1];
+    static {
+        for (int code = 0; code < LENGTH_BASE.length; code++)
+            for (int len = LENGTH_BASE[code]; len < LENGTH_BASE[code] + (1 << LENGTH_EXTRA[code]); len++)
+                if (len <= LzMatchFinder.MAX_MATCH)
+                    LENGTH_CODE[len] = code;
+    }
+
+    private final BitWriter bits;
+    private final int distanceSymbols;
+    private final int[] tokens = new int[BLOCK_TOKENS];     // a byte, or length << 20 | distance
+    private int n;
+
+    // code lengths of the last block, the prices LzParser's optimal parse uses
+    private final int[] literalBits = new int[LITERAL_LENGTH_SYMBOLS];
+    private final int[] distanceBits;
+
+    // a block writer for matches in a window of 2^windowBits bytes (at most 20)
+    public LzHuffman(BitWriter bits, int windowBits) {
+        this.bits = bits;
+        distanceSymbols = 2 * windowBits;
+        distanceBits = new int[distanceSymbols];
+
+        // before the first block, DEFLATE's fixed code (RFC 1951, 3.2.6)
+        for (int s = 0; s < LITERAL_LENGTH_SYMBOLS; s++)
+            literalBits[s] = s < 144 ? 8 : s < 256 ? 9 : s < 280 ? 7 : 8;
+        Arrays.fill(distanceBits, 5);
+    }
+
+    // bits a literal took in the last block
+    public int literalPrice(int c) {
+        return literalBits[c];
+    }
+
+    // bits a match took in the last block
+    public int matchPrice(int length, int distance) {
+        int code = LENGTH_CODE[length];
+        int distanceCode = distanceCode(distance);
+        return literalBits[R + 1 + code] + LENGTH_EXTRA[code]
+             + distanceBits[distanceCode] + distanceExtra(distanceCode);
+    }
+
+    public void literal(int c) {
+        tokens[n++] = c;
+        if (n == BLOCK_TOKENS) writeBlock(false);
+    }
+
+    public void match(int length, int distance) {
+        tokens[n++] = length << 20 | distance;
+        if (n == BLOCK_TOKENS) writeBlock(false);
+    }
+
+    // write the last block (the output is not flushed)
+    public void finish() {
+        writeBlock(true);
+    }
+
+    // -------------------------- COMPRESS -------------------------- //
+
+    private void writeBlock(boolean last) {
+
+        // count the block's symbols
+        int[] literalFreq = new int[LITERAL_LENGTH_SYMBOLS];
+        int[] distanceFreq = new int[distanceSymbols];
+        for (int i = 0; i < n; i++) {
+            int token = tokens[i];
+            if (token < R) {
+                literalFreq[token]++;
+            }
+            else {
+                literalFreq[R + 1 + LENGTH_CODE[token >>> 20]]++;
+                distanceFreq[distanceCode(token & 0xfffff)]++;
+            }
+        }
+        literalFreq[END]++;
+        // a block without matches still has a (one symbol) distance code
+        boolean matches = false;
+        for (int freq : distanceFreq) matches |= freq > 0;
+        if (!matches) distanceFreq[0] = 1;
+
+        int[] literalLength = HuffmanLengths.packageMerge(literalFreq, MAX_CODE_LENGTH);
+        int[] distanceLength = HuffmanLengths.packageMerge(distanceFreq, MAX_CODE_LENGTH);
+        int[] literalCode = BitWriter.pack(literalLength, CanonicalHuffman.assignCodes(literalLength));
+        int[] distanceCode = BitWriter.pack(distanceLength, CanonicalHuffman.assignCodes(distanceLength));
+
+        bits.write(last);
+        CanonicalHuffman.writeLengths(bits, literalLength);
+        CanonicalHuffman.writeLengths(bits, distanceLength);
+
+        for (int i = 0; i < n; i++) {
+            int token = tokens[i];
+            if (token < R) {
+                bits.writeCode(literalCode[token]);
+                continue;
+            }
+            int length = token >>> 20;
+            int code = LENGTH_CODE[length];
+            bits.writeCode(literalCode[R + 1 + code]);
+            if (LENGTH_EXTRA[code] > 0)
+                bits.write(length - LENGTH_BASE[code], LENGTH_EXTRA[code]);
+
+            int distance = token & 0xfffff;
+            code = distanceCode(distance);
+            bits.writeCode(distanceCode[code]);
+            if (distanceExtra(code) > 0)
+                bits.write(distance - distanceBase(code), distanceExtra(code));
+        }
+        bits.writeCode(literalCode[END]);
+        bits.flushBytes();
+        n = 0;
+
+        // symbols the block did not use are priced as the longest code
+        for (int s = 0; s < LITERAL_LENGTH_SYMBOLS; s++)
+            literalBits[s] = literalLength[s] > 0 ? literalLength[s] : MAX_CODE_LENGTH;
+        for (int s = 0; s < distanceSymbols; s++)
+            distanceBits[s] = distanceLength[s] > 0 ? distanceLength[s] : MAX_CODE_LENGTH;
+    }
+
+    // -------------------------- EXPAND -------------------------- //
+
+    // expand the blocks of a .lh file into window
+    public static void expand(BitReader bits, LzDecoder window, int windowBits) {
+        boolean last;
+        do {
+            last = bits.readBoolean();
+            CanonicalHuffman literals = new CanonicalHuffman(CanonicalHuffman.readLengths(bits, LITERAL_LENGTH_SYMBOLS));
+            CanonicalHuffman distances = new CanonicalHuffman(CanonicalHuffman.readLengths(bits, 2 * windowBits));
+            while (true) {
+                int symbol = literals.decode(bits);
+                if (symbol < R) {
+                    window.literal(symbol);
+                    continue;
+                }
+                if (symbol == END) break;
+
+                int code = symbol - (R + 1);
+                int length = LENGTH_BASE[code] + bits.readBits(LENGTH_EXTRA[code]);
+                code = distances.decode(bits);
+                window.copy(distanceBase(code) + bits.readBits(distanceExtra(code)), length);
+            }
+        } while (!last);
+    }
+
+    // -------------------------- DISTANCE CODES -------------------------- //
+
+    // code of a distance (1 to 2^20 - 1)
+    static int distanceCode(int distance) {
+        int d = distance - 1;
+        if (d < 4) return d;
+        int top = 31 - Integer.numberOfLeadingZeros(d);     // highest set bit, at least 2
+        return 2 * top + ((d >>> (top - 1)) & 1);
+    }
+
+    // smallest distance of a code
+    static int distanceBase(int code) {
+        if (code < 4) return code + 1;
+        return ((2 | (code & 1)) << distanceExtra(code)) + 1;
+    }
+
+    // number of extra bits after a code
+    static int distanceExtra(int code) {
+        return code < 4 ? 0 : code / 2 - 1;
+    }
+}
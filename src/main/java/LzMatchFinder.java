@@ -0,0 +1,189 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *  Assignment: Final Compression Project
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: LzMatchFinder
+ *  Dependencies: BinaryIn.java
+ *
+ *  ------------- CLI -------------
+ *  This file is not meant to be run from CLI (see SchubsZ)
+ *
+ * ------------- DESIGN -------------
+ *  Overview
+ *      Finds, for the current position of the input, the longest earlier copy
+ *      of the bytes that follow it within a sliding window (64 KB to 1 MB), the
+ *      part of LZ77 that takes the time. The compressor decides what to do with
+ *      a match (write it, or a literal) and then moves on with skip().
+ *
+ *  Process
+ *      Hash chains, as in gzip: every position is hashed on its next
+ *      MIN_MATCH bytes, head[hash] is the latest position with that hash, and
+ *      prev[position % window] the one before it. A search walks the chain of
+ *      the current position, newest (closest) first, and compares each
+ *      candidate with the input, for at most "depth" candidates or until one
+ *      matches MAX_MATCH bytes. A candidate is first checked at the byte that
+ *      would make it longer than the best so far, which rejects most of them
+ *      with one comparison. findAll() also reports every match on the way
+ *      that is longer than all closer ones, for parsers that weigh a shorter,
+ *      closer match against a longer one (see LzParser).
+ *
+ *      The input is read into a buffer of two windows. When the bytes ahead of
+ *      the current position run short and the buffer is full, its second half
+ *      moves down to the first and every stored position drops by one window
+ *      (positions that fall off become NIL), so the window always holds the
+ *      last window - 1 bytes behind the current position (a few hundred less
+ *      just after a slide).
+ *
+ *  Trade-Offs
+ *      A deeper search finds longer matches but compares more candidates per
+ *      byte; the chains of repetitive input (runs, logs) are long, so the depth
+ *      is what keeps compression time bounded.
+ */
+
+import java.util.Arrays;
+
+import sedgewick.*;
+
+public class LzMatchFinder {
+
+    // shortest and longest match
+    public static final int MIN_MATCH = 3;
+    public static final int MAX_MATCH = 258;
+
+    // bytes kept ahead of the current position while more input is coming
+    private static final int MIN_LOOKAHEAD = MAX_MATCH + MIN_MATCH;
+
+    private static final int HASH_BITS = 16;
+    private static final int NIL = -1;
+
+    private final BinaryIn in;
+    private final byte[] buf;           // two windows of input
+    private final int[] head;           // latest position per hash, or NIL
+    private final int[] prev;           // previous position with the same hash, by position % window
+    private final int window;
+    private final int maxDistance;
+    private final int depth;
+
+    private int pos;                    // current position in buf
+    private int filled;                 // end of the input in buf
+    private boolean eof;
+    private int best;                   // length of the match found last
+    private int distance;               // and its distance
+
+    // a finder over a window of 2^windowBits bytes, comparing at most depth
+    // candidates per search
+    public LzMatchFinder(BinaryIn in, int windowBits, int depth) {
+        this.in = in;
+        this.depth = depth;
+        window = 1 << windowBits;
+        maxDistance = window - 1;
+        buf = new byte[2 * window];
+        head = new int[1 << HASH_BITS];
+        prev = new int[window];
+        Arrays.fill(head, NIL);
+    }
+
+    // bytes from the current position on, at most MAX_MATCH (0 at the end)
+    public int lookahead() {
+        if (filled - pos < MIN_LOOKAHEAD && !eof) fill();
+        return Math.min(MAX_MATCH, filled - pos);
+    }
+
+    // the byte at the current position
+    public int literal() {
+        return buf[pos] & 0xff;
+    }
+
+    // length of the longest match at the current position, 0 if none is at
+    // least MIN_MATCH long; its distance is then distance()
+    public int find() {
+        return search(null, null, 0, 0) > 0 ? best : 0;
+    }
+
+    // every match at the current position that is longer than the ones
+    // closer to it, lengths[off + k] bytes at distances[off + k] with both
+    // increasing in k (at most max of them, the longest always last);
+    // returns how many there are
+    public int findAll(int[] lengths, int[] distances, int off, int max) {
+        return search(lengths, distances, off, max);
+    }
+
+    // walk the chain, keeping the longest match in best and distance, and
+    // recording each new longest one if lengths is not null
+    private int search(int[] lengths, int[] distances, int off, int max) {
+        int limit = Math.min(MAX_MATCH, filled - pos);
+        best = 0;
+        if (limit < MIN_MATCH) return 0;
+        int longest = MIN_MATCH - 1;
+        int found = 0;
+        int stop = Math.max(pos - maxDistance, 0);
+        int candidate = head[hash(pos)];
+        for (int chain = depth; candidate >= stop && chain > 0; chain--) {
+            if (buf[candidate + longest] == buf[pos + longest] && buf[candidate] == buf[pos]) {
+                int len = 1;
+                while (len < limit && buf[candidate + len] == buf[pos + len]) len++;
+                if (len > longest) {
+                    longest = len;
+                    distance = pos - candidate;
+                    if (lengths != null) {
+                        if (found == max) found--;    // keep the longest
+                        lengths[off + found] = len;
+                        distances[off + found] = distance;
+                    }
+                    found++;
+                    if (len == limit) break;
+                }
+            }
+            candidate = prev[candidate & (window - 1)];
+        }
+        if (found > 0) best = longest;
+        return found;
+    }
+
+    // distance back to the match found last
+    public int distance() {
+        return distance;
+    }
+
+    // move n bytes on (at most lookahead()), adding each position to the chains
+    public void skip(int n) {
+        for (int end = pos + n; pos < end; pos++) {
+            if (pos + MIN_MATCH > filled) continue;
+            int h = hash(pos);
+            prev[pos & (window - 1)] = head[h];
+            head[h] = pos;
+        }
+    }
+
+    // read more input, first sliding the window down if the buffer is full
+    private void fill() {
+        if (filled == buf.length) slide();
+        while (filled < buf.length) {
+            int n = in.read(buf, filled, buf.length - filled);
+            if (n <= 0) {
+                eof = true;
+                return;
+            }
+            filled += n;
+        }
+    }
+
+    private void slide() {
+        System.arraycopy(buf, window, buf, 0, filled - window);
+        pos -= window;
+        filled -= window;
+        for (int i = 0; i < head.length; i++)
+            head[i] = head[i] >= window ? head[i] - window : NIL;
+        for (int i = 0; i < prev.length; i++)
+            prev[i] = prev[i] >= window ? prev[i] - window : NIL;
+    }
+
+    private int hash(int p) {
+        int x = (buf[p] & 0xff) << 16 | (buf[p + 1] & 0xff) << 8 | (buf[p + 2] & 0xff);
+        return (x * 0x9E3779B1) >>> (32 - HASH_BITS);
+    }
+}
@@ -0,0 +1,274 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *  Assignment: Final Compression Project
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: LzParser
+ *  Dependencies: LzMatchFinder.java LzHuffman.java
+ *
+ *  ------------- CLI -------------
+ *  This file is not meant to be run from CLI (see SchubsZ -l)
+ *
+ * ------------- DESIGN -------------
+ *  Overview
+ *      Decides which matches an LZ77 compressor writes, at one of three
+ *      levels that trade compression time for ratio:
+ *          GREEDY   the longest match at every position, as SchubsL's LZW
+ *                   takes the longest prefix
+ *          LAZY     before taking a match, look for a longer one at the next
+ *                   position, and if there is one write a literal instead
+ *                   (gzip's default)
+ *          OPTIMAL  the cheapest sequence of literals and matches for a whole
+ *                   chunk of input, by dynamic programming over the prices of
+ *                   every literal and match the finder sees
+ *      The output is the same either way, tokens: a byte (below 256) or
+ *      (length << 20 | distance), which SchubsZ writes as .lz or hands to
+ *      LzHuffman.
+ *
+ *  Process
+ *      Greedy and lazy search once per position they stop at; positions
+ *      inside a match are only added to the hash chains (LzMatchFinder.skip).
+ *      For .lh, "longer" is not enough for lazy: the literal and the later
+ *      match have to take fewer bits per byte than the pending match, at the
+ *      prices below, as a match further back can cost more than it saves.
+ *
+ *      The optimal parse searches every position of a chunk of OPT_CHUNK
+ *      bytes with findAll(), which reports, for each length, the closest
+ *      match at least that long. price[i] is then the fewest bits that code
+ *      the chunk's first i bytes: from every position i, a literal leads to
+ *      i + 1 and every match length L (MIN_MATCH up to the longest match)
+ *      leads to i + L, and the cheaper way in is kept with where it came
+ *      from. Walking those links back from the end of the chunk gives the
+ *      tokens. Matches are cut at the end of the chunk, except the last one,
+ *      which is written whole and the next chunk starts after it.
+ *
+ *      Prices are the exact .lz field widths (9 bits a literal, 1 + n + 8 a
+ *      match), or for .lh the code lengths of the last block LzHuffman wrote
+ *      (DEFLATE's fixed code before the first one).
+ *
+ *  Trade-Offs
+ *      Lazy searches about twice as often as greedy. Optimal searches every
+ *      byte and tries every match length, around ten times slower again, and
+ *      is only as optimal as its prices: for .lh they come from the previous
+ *      block. None of this changes how fast a file expands.
+ */
+
+public class LzParser {
+
+    // levels
+    public static final int GREEDY = 1;
+    public static final int LAZY = 2;
+    public static final int OPTIMAL = 3;
+
+    // bytes per optimal parse, and the most tokens a call to parse() returns
+    public static final int OPT_CHUNK = 1 << 12;
+
+    // lazy: a match this long is taken without looking further
+    private static final int LAZY_ENOUGH = 32;
+
+    // .lh: a 3 byte match further back than this is written as literals (as gzip does)
+    private static final int TOO_FAR = 4096;
+
+    // matches kept per position by the optimal parse
+    private static final int MAX_CANDIDATES = 32;
+
+    private static final int R = 256;
+
+    private final LzMatchFinder matches;
+    private final int level;
+    private final LzHuffman huffman;    // prices and rules of .lh, null for .lz
+    private final int minLength;        // shortest match worth a token
+    private final int literalBits;      // .lz prices
+    private final int matchBits;
+
+    // lazy: a match found at the previous position, not written yet
+    private int pendingLength;
+    private int pendingDistance;
+    private int pendingLiteral;
+
+    // optimal: per position of the chunk
+    private int[] price, from, token, literals, candidates, lengths, distances;
+
+    // a parser of the finder's input for .lz (huffman == null) or .lh
+    public LzParser(LzMatchFinder matches, int level, int windowBits, LzHuffman huffman) {
+        this.matches = matches;
+        this.level = level;
+        this.huffman = huffman;
+        literalBits = 9;
+        matchBits = 1 + windowBits + 8;
+        // .lz: the shortest match that takes fewer bits than its literals
+        minLength = huffman != null ? LzMatchFinder.MIN_MATCH
+                  : Math.max(LzMatchFinder.MIN_MATCH, matchBits / literalBits + 1);
+        if (level == OPTIMAL) {
+            price = new int[OPT_CHUNK + 1];
+            from = new int[OPT_CHUNK + 1];
+            token = new int[OPT_CHUNK + 1];
+            literals = new int[OPT_CHUNK];
+            candidates = new int[OPT_CHUNK];
+            lengths = new int[OPT_CHUNK * MAX_CANDIDATES];
+            distances = new int[OPT_CHUNK * MAX_CANDIDATES];
+        }
+    }
+
+    // parse the next stretch of input into tokens[] (OPT_CHUNK long at least);
+    // returns the number of tokens, 0 at the end of the input
+    public int parse(int[] tokens) {
+        if (level == OPTIMAL) return optimal(tokens);
+        int n = 0;
+        while (n < OPT_CHUNK - 1 && matches.lookahead() > 0) {
+            if (level == LAZY) n = lazy(tokens, n);
+            else               n = greedy(tokens, n);
+        }
+        // a lazy match still pending at the end of the input
+        if (pendingLength > 0 && matches.lookahead() == 0) {
+            tokens[n++] = pendingLength << 20 | pendingDistance;
+            pendingLength = 0;
+        }
+        return n;
+    }
+
+    // -------------------------- GREEDY AND LAZY -------------------------- //
+
+    // one token at the current position
+    private int greedy(int[] tokens, int n) {
+        int length = matches.find();
+        if (usable(length, matches.distance())) {
+            tokens[n++] = length << 20 | matches.distance();
+            matches.skip(length);
+        }
+        else {
+            tokens[n++] = matches.literal();
+            matches.skip(1);
+        }
+        return n;
+    }
+
+    // search the current position, then write the pending match, or the
+    // literal before a longer match, or nothing yet
+    private int lazy(int[] tokens, int n) {
+        int length = matches.find();
+        int distance = matches.distance();
+        if (!usable(length, distance)) length = 0;
+
+        if (pendingLength > 0) {
+            if (better(length, distance, pendingLength, pendingDistance)) {
+                // the match here is longer: the pending one becomes a literal
+                tokens[n++] = pendingLiteral;
+                pendingLength = length;
+                pendingDistance = distance;
+                pendingLiteral = matches.literal();
+                matches.skip(1);
+            }
+            else {
+                // the pending match started one byte back
+                tokens[n++] = pendingLength << 20 | pendingDistance;
+                matches.skip(pendingLength - 1);
+                pendingLength = 0;
+            }
+            return n;
+        }
+
+        if (length >= LAZY_ENOUGH) {
+            tokens[n++] = length << 20 | distance;
+            matches.skip(length);
+        }
+        else if (length > 0) {
+            pendingLength = length;
+            pendingDistance = distance;
+            pendingLiteral = matches.literal();
+            matches.skip(1);
+        }
+        else {
+            tokens[n++] = matches.literal();
+            matches.skip(1);
+        }
+        return n;
+    }
+
+    // lazy: whether the literal before a match one byte later takes fewer
+    // bits per byte than the pending match (for .lz, whether it is longer)
+    private boolean better(int length, int distance, int pendingLength, int pendingDistance) {
+        if (huffman == null) return length > pendingLength;
+        long later = literalPrice(pendingLiteral) + matchPrice(length, distance);
+        long pending = matchPrice(pendingLength, pendingDistance);
+        return later * pendingLength < pending * (length + 1);
+    }
+
+    // whether a greedy or lazy parse writes this match
+    private boolean usable(int length, int distance) {
+        if (length < minLength) return false;
+        return huffman == null || length > LzMatchFinder.MIN_MATCH || distance <= TOO_FAR;
+    }
+
+    // -------------------------- OPTIMAL -------------------------- //
+
+    private int optimal(int[] tokens) {
+
+        // search every position of the chunk
+        int size = 0;
+        while (size < OPT_CHUNK && matches.lookahead() > 0) {
+            literals[size] = matches.literal();
+            candidates[size] = matches.findAll(lengths, distances, size * MAX_CANDIDATES, MAX_CANDIDATES);
+            matches.skip(1);
+            size++;
+        }
+        if (size == 0) return 0;
+
+        // cheapest way to each position
+        price[0] = 0;
+        for (int i = 1; i <= size; i++) price[i] = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            int literal = price[i] + literalPrice(literals[i]);
+            if (literal < price[i + 1]) {
+                price[i + 1] = literal;
+                from[i + 1] = i;
+                token[i + 1] = literals[i];
+            }
+            int length = LzMatchFinder.MIN_MATCH;
+            for (int k = 0; k < candidates[i]; k++) {
+                int distance = distances[i * MAX_CANDIDATES + k];
+                int longest = Math.min(lengths[i * MAX_CANDIDATES + k], size - i);
+                for (; length <= longest; length++) {
+                    int p = price[i] + matchPrice(length, distance);
+                    if (p < price[i + length]) {
+                        price[i + length] = p;
+                        from[i + length] = i;
+                        token[i + length] = length << 20 | distance;
+                    }
+                }
+            }
+        }
+
+        // a last match cut at the end of the chunk is written whole, past it
+        int last = from[size];
+        if (token[size] >= R) {
+            int k = last * MAX_CANDIDATES + candidates[last] - 1;
+            if (lengths[k] > size - last) {
+                token[size] = lengths[k] << 20 | distances[k];
+                matches.skip(lengths[k] - (size - last));
+            }
+        }
+
+        // follow the links back, then put the tokens in order
+        int n = 0;
+        for (int i = size; i > 0; i = from[i])
+            tokens[n++] = token[i];
+        for (int a = 0, b = n - 1; a < b; a++, b--) {
+            int t = tokens[a];
+            tokens[a] = tokens[b];
+            tokens[b] = t;
+        }
+        return n;
+    }
+
+    private int literalPrice(int c) {
+        return huffman == null ? literalBits : huffman.literalPrice(c);
+    }
+
+    private int matchPrice(int length, int distance) {
+        return huffman == null ? matchBits : huffman.matchPrice(length, distance);
+    }
+}
@@ -0,0 +1,206 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *  Assignment: Final Compression Project
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: LzwBlocks
+ *  Dependencies: BinaryIn.java BinaryOut.java BitReader.java BitWriter.java
+ *                BlockFile.java LzwEncoder.java LzwDecoder.java LzwDictionary.java SchubsL.java
+ *
+ *  ------------- CLI -------------
+ *  This file is not meant to be run from CLI (see SchubsL -b)
+ *
+ * ------------- DESIGN -------------
+ *  Overview
+ *      The block layout of a .lw file. The input is cut into fixed size blocks
+ *      (BLOCK_SIZE bytes, the last one may be shorter) and every block is
+ *      coded with a dictionary of its own, starting from the 256 single bytes,
+ *      so the blocks can be compressed and expanded independently, on as many
+ *      cores as there are.
+ *
+ *  Block Layout
+ *      - (8 bits) maximum code width n
+ *      - (8 bits) mode flags, with BLOCKS set (RESET or LRU may be set too)
+ *      - (int) preset dictionary id, only if PRESET is set
+ *      - (int) block size
+ *      - (long) number of bytes in original uncompressed message
+ *      - for each block
+ *          - (int) number of compressed bytes c that follow
+ *          - c bytes: the block's codes and EOF, exactly like the code stream
+ *            of a sequential .lw file, padded to a byte
+ *      - index: (long) file offset of each block's (int) size
+ *      - (long) file offset of the index
+ *
+ *  Process
+ *      The container is BlockFile, as for the .hc blocks: blocks are
+ *      compressed and expanded on a thread pool, at most 2 per thread in
+ *      memory, and the index lets readBlock() expand any one block without
+ *      reading the ones before it.
+ *
+ *      A block makes fewer codes than it has bytes, so its tables are sized
+ *      for min(2^width, block size) entries: -w 24 on 4 MB blocks costs
+ *      32 MB per thread, not 256 MB.
+ *
+ *  Trade-Offs
+ *      Every block starts with an empty dictionary (or the preset one) and has
+ *      to learn the data again, so the file is a little larger than a sequential .lw (and the
+ *      larger the width, the more of it a block never gets to fill). The
+ *      blocks are large to keep that cost small.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+import sedgewick.*;
+
+public class LzwBlocks {
+
+    // bytes of input per block
+    public static final int BLOCK_SIZE = 1 << 22;
+
+    private static final int R = 256;
+
+    // -------------------------- ONE BLOCK -------------------------- //
+
+    // compress data[0..n) into a self-contained code stream
+    public static byte[] compressBlock(byte[] data, int n, int maxWidth, int mode) {
+        return compressBlock(data, n, maxWidth, mode, null);
+    }
+
+    // same, starting from a preset dictionary (or null)
+    public static byte[] compressBlock(byte[] data, int n, int maxWidth, int mode, LzwDictionary preset) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(n / 2 + 64);
+        BinaryOut blockOut = new BinaryOut(bytes);
+        BitWriter bits = new BitWriter(blockOut);
+        LzwEncoder lzw = new LzwEncoder(bits, maxWidth, mode, n, preset);
+        lzw.encode(data, 0, n);
+        lzw.finish();
+        bits.flush();
+        blockOut.close();
+        return bytes.toByteArray();
+    }
+
+    // expand a block made by compressBlock back into its n bytes
+    public static byte[] expandBlock(byte[] block, int n, int maxWidth, int mode) {
+        return expandBlock(block, n, maxWidth, mode, null);
+    }
+
+    // same, for a block compressed from a preset dictionary (or null)
+    public static byte[] expandBlock(byte[] block, int n, int maxWidth, int mode, LzwDictionary preset) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(n);
+        BinaryOut blockOut = new BinaryOut(bytes);
+        boolean reset = (mode & SchubsL.RESET) != 0;
+        int first = reset ? R+2 : R+1;
+        int entries = n + (preset == null ? 0 : preset.size());
+
+        // the block adds fewer than n entries, so a smaller table decodes it the same
+        LzwDecoder st = new LzwDecoder((int) Math.min(1 << maxWidth, (long) first + entries), first,
+                                       (mode & SchubsL.LRU) != 0, preset, blockOut);
+        st.expand(new BitReader(block, 0, block.length), maxWidth, reset ? R+1 : -1);
+        st.flush();
+        blockOut.close();
+
+        byte[] data = bytes.toByteArray();
+        if (data.length != n)
+            throw new RuntimeException("Corrupt LZW block: " + data.length + " bytes instead of " + n);
+        return data;
+    }
+
+    // the blocks of a file with the given width, mode and preset (or null)
+    private static BlockFile.Coder coder(final int maxWidth, final int mode, final LzwDictionary preset) {
+        return new BlockFile.Coder() {
+            public byte[] compress(byte[] data, int n) {
+                return compressBlock(data, n, maxWidth, mode, preset);
+            }
+
+            public byte[] expand(byte[] block, int n) {
+                return expandBlock(block, n, maxWidth, mode, preset);
+            }
+        };
+    }
+
+    // -------------------------- WHOLE FILE -------------------------- //
+
+    // compress a file block by block on a pool of threads
+    public static void compress(String filepath, BinaryOut out, int maxWidth, int mode, int threads) {
+        compress(filepath, out, maxWidth, mode, null, threads);
+    }
+
+    // same, every block starting from a preset dictionary (or null)
+    public static void compress(String filepath, BinaryOut out, int maxWidth, int mode,
+                                LzwDictionary preset, int threads) {
+        int blockMode = mode | SchubsL.BLOCKS;
+        ByteBuffer header = ByteBuffer.allocate(preset == null ? 2 : 2 + 4);
+        header.put((byte) maxWidth);
+        if (preset == null) {
+            header.put((byte) blockMode);
+        }
+        else {
+            header.put((byte) (blockMode | SchubsL.PRESET));
+            header.putInt(preset.id());
+        }
+        BlockFile.compress(filepath, out, header.array(), BLOCK_SIZE,
+                           coder(maxWidth, blockMode, preset), threads);
+    }
+
+    // expand a block layout file (after its width and mode bytes, and the
+    // dictionary id if any) on a pool of threads
+    public static void expand(BinaryIn in, BinaryOut out, int maxWidth, int mode, int threads) {
+        expand(in, out, maxWidth, mode, null, threads);
+    }
+
+    // same, for a file compressed from a preset dictionary (or null)
+    public static void expand(BinaryIn in, BinaryOut out, int maxWidth, int mode,
+                              LzwDictionary preset, int threads) {
+        BlockFile.expand(in, out, coder(maxWidth, mode, preset), threads);
+    }
+
+    // -------------------------- RANDOM ACCESS -------------------------- //
+
+    // number of blocks in a block layout .lw file
+    public static int blockCount(String filepath) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(filepath, "r");
+        try {
+            file.seek(1);
+            if ((file.readUnsignedByte() & SchubsL.PRESET) != 0)
+                file.readInt();
+            return BlockFile.blockCount(file);
+        } finally {
+            file.close();
+        }
+    }
+
+    // expand block i of a block layout .lw file without reading the blocks before it
+    public static byte[] readBlock(String filepath, int i) throws IOException {
+        return readBlock(filepath, i, null);
+    }
+
+    // same, for a file compressed from a preset dictionary (or null)
+    public static byte[] readBlock(String filepath, int i, LzwDictionary preset) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(filepath, "r");
+        try {
+            int maxWidth = file.readUnsignedByte();
+            int mode = file.readUnsignedByte();
+            if ((mode & SchubsL.BLOCKS) == 0)
+                throw new RuntimeException(filepath + " does not use the block layout");
+            if (maxWidth < SchubsL.MIN_WIDTH || maxWidth > SchubsL.MAX_WIDTH)
+                throw new RuntimeException("Invalid LZW code width " + maxWidth);
+            if ((mode & SchubsL.PRESET) != 0) {
+                int id = file.readInt();
+                if (preset == null || preset.id() != id)
+                    throw new RuntimeException(filepath + " needs the preset dictionary it was compressed with");
+            }
+            else {
+                preset = null;
+            }
+            return BlockFile.readBlock(file, filepath, i, coder(maxWidth, mode, preset));
+        } finally {
+            file.close();
+        }
+    }
+}
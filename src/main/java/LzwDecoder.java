@@ -0,0 +1,221 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *  Assignment: Final Compression Project
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: LzwDecoder
+ *  Dependencies: BinaryOut.java BitReader.java LzwLru.java LzwDictionary.java
+ *                SchubsL.java
+ *
+ *  ------------- CLI -------------
+ *  This file is not meant to be run from CLI (see Deschubs)
+ *
+ * ------------- DESIGN -------------
+ *  Overview
+ *      The LZW expander's dictionary, the mirror image of LzwTable. Every entry
+ *      is an earlier entry plus one byte, so it is stored as one int,
+ *      (prefix << 8 | suffix) where the prefix is the code of the earlier entry
+ *      and the suffix is the byte, instead of as a String. Adding an entry is
+ *      one store, and decoding makes no garbage.
+ *
+ *  Process
+ *      To output a code, follow its prefix chain down to a single byte (a code
+ *      below 256), dropping each suffix into a scratch buffer from the end
+ *      backwards. The chain gives the string last byte first, so when it ends
+ *      the string sits in order at the end of the scratch buffer and is copied
+ *      to the output buffer in one go. The byte the chain ends on is the
+ *      string's first byte, which is all the next entry needs.
+ *
+ *      A code can refer to the entry that is about to be made (the "special
+ *      case" of cScSc input): its string is the previous string plus the first
+ *      byte of the previous string.
+ *
+ *      In LRU mode a full dictionary keeps making entries, each in place of
+ *      the least recently used one (see LzwLru); the entry a code completes
+ *      is chosen before the code is spelled out, exactly when the compressor
+ *      chose it, and every code is touched after it has been output.
+ *
+ *      A preset LzwDictionary is loaded as the first codes at the start and
+ *      after every CLEAR, the same as in the compressor.
+ *
+ *      The entries are a direct ByteBuffer, outside the Java heap, like the
+ *      compressor's LzwTable: a 2^24 entry dictionary is 64 MB that the garbage
+ *      collector never scans. Codes are at most 24 bits, so prefix and suffix
+ *      always fit in one int, and following a chain is one read per byte. The
+ *      scratch buffer starts small and doubles when a string does not fit,
+ *      since most strings are short.
+ *
+ *  Trade-Offs
+ *      A string is walked once to output it, the same work as the copy the
+ *      String version made, but nothing is kept per entry except an int, so a
+ *      full 2^20 entry table is 4 MB instead of millions of Strings.
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import sedgewick.*;
+
+public class LzwDecoder {
+
+    private static final int R = 256;               // single byte codes
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int STACK_SIZE = 1 << 12;  // first size of the scratch buffer
+
+    private final int size;                         // number of codes
+    private final ByteBuffer entries;               // (prefix << 8 | suffix) per code
+    private byte[] stack = new byte[STACK_SIZE];    // a string, written backwards
+    private final byte[] buf = new byte[BUFFER_SIZE];
+    private final BinaryOut out;
+    private int n;                                  // bytes waiting in buf
+
+    private final LzwLru lru;                       // null unless in LRU mode
+    private final LzwDictionary preset;             // null unless primed
+    private int first;                              // first code after the single bytes
+    private int next;                               // next free code
+    private int prev = -1;                          // previous code, -1 at the start
+
+    // a dictionary of "size" codes whose entries start at code "first"
+    public LzwDecoder(int size, int first, BinaryOut out) {
+        this(size, first, false, out);
+    }
+
+    // same, reusing the least recently used codes once it is full if lru is set
+    public LzwDecoder(int size, int first, boolean lru, BinaryOut out) {
+        this(size, first, lru, null, out);
+    }
+
+    // same, starting (and starting again after each CLEAR) from a preset dictionary
+    public LzwDecoder(int size, int first, boolean lru, LzwDictionary preset, BinaryOut out) {
+        if (preset != null && first + preset.size() > size)
+            throw new RuntimeException("A " + preset.size() + " entry dictionary does not fit in " + size + " codes");
+        this.size = size;
+        this.out = out;
+        this.preset = preset;
+        entries = ByteBuffer.allocateDirect(4 * size).order(ByteOrder.nativeOrder());
+        this.lru = lru ? new LzwLru(size, first) : null;
+        reset(first);
+    }
+
+    // forget every entry but the preset ones; the next code is a single byte
+    // or a preset entry
+    public void reset(int first) {
+        this.first = first;
+        next = first;
+        prev = -1;
+        if (preset == null) return;
+        for (int j = 0; j < preset.size(); j++, next++) {
+            entries.putInt(4 * next, (preset.prefix(j, first) << 8) | preset.suffix(j));
+            if (lru != null) lru.add(next, preset.prefix(j, first), preset.suffix(j));
+        }
+    }
+
+    // the code the next entry will get (the largest code that can come next)
+    public int next() {
+        return next;
+    }
+
+    // output the string of a code and add the entry it implies to the dictionary
+    public void decode(int code) {
+        if (prev == -1) {
+            // a single byte, or a preset entry
+            if (code >= next || (code >= R && code < first))
+                throw new RuntimeException("Invalid LZW code " + code);
+            write(code);
+            if (lru != null) lru.touch(code);
+            prev = code;
+            return;
+        }
+        if (code >= R && (code < first || code > next || code >= size))
+            throw new RuntimeException("Invalid LZW code " + code);
+
+        // the code of the entry this code completes: the next free one, or in
+        // LRU mode the least recently used (none if that is prev, see LzwEncoder)
+        int target = -1;
+        if (next < size) target = next;
+        else if (lru != null && lru.oldest() != prev) target = lru.oldest();
+
+        int c;
+        if (code == target) {
+            // special case: the previous string plus its own first byte
+            c = write(prev);
+            put((byte) c);
+        }
+        else {
+            c = write(code);
+        }
+        if (target != -1) {
+            entries.putInt(4 * target, (prev << 8) | c);
+            if (target == next) next++;
+            else                lru.remove(target);
+            if (lru != null) lru.add(target, prev, c);
+        }
+        if (lru != null) lru.touch(code);
+        prev = code;
+    }
+
+    // expand a .lw code stream (after the file header) up to its EOF code;
+    // "clear" is the CLEAR code, or -1 if the stream has none
+    public void expand(BitReader bits, int maxWidth, int clear) {
+        // codes are as wide as the largest code that can come next; the first
+        // code (and the first after a CLEAR) is a single char or a preset entry
+        while (true) {
+            int largest = prev == -1 ? next - 1 : next;
+            int codeword = bits.readBits(Math.min(maxWidth, SchubsL.bitsNeeded(largest)));
+            if (codeword == R) break;
+            if (codeword == clear) reset(first);
+            else decode(codeword);
+        }
+    }
+
+    // write out the bytes still in the buffer
+    public void flush() {
+        out.write(buf, 0, n);
+        n = 0;
+        out.flush();
+    }
+
+    // output the string of a code and return its first byte
+    private int write(int code) {
+        int top = stack.length;
+        while (code >= R) {
+            if (top == 0) top = growStack();
+            int entry = entries.getInt(4 * code);
+            stack[--top] = (byte) entry;
+            code = entry >>> 8;
+        }
+        if (top == 0) top = growStack();
+        stack[--top] = (byte) code;
+
+        int len = stack.length - top;
+        if (n + len > BUFFER_SIZE) {
+            out.write(buf, 0, n);
+            n = 0;
+        }
+        if (len > BUFFER_SIZE) out.write(stack, top, len);
+        else {
+            System.arraycopy(stack, top, buf, n, len);
+            n += len;
+        }
+        return code;
+    }
+
+    // double the scratch buffer, keeping the string at its end; returns the new start
+    private int growStack() {
+        byte[] larger = new byte[2 * stack.length];
+        System.arraycopy(stack, 0, larger, stack.length, stack.length);
+        stack = larger;
+        return stack.length / 2;
+    }
+
+    private void put(byte c) {
+        if (n == BUFFER_SIZE) {
+            out.write(buf, 0, n);
+            n = 0;
+        }
+        buf[n++] = c;
+    }
+}
@@ -0,0 +1,226 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *  Assignment: Final Compression Project
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: LzwDictionary
+ *  Dependencies: BinaryIn.java BinaryOut.java LzwTable.java SchubsL.java
+ *
+ *  ------------- CLI -------------
+ *  This file is not meant to be run from CLI (see SchubsL -t and -d,
+ *  Deschubs -d)
+ *
+ * ------------- DESIGN -------------
+ *  Overview
+ *      A preset LZW dictionary, trained once from sample files and then loaded
+ *      by both SchubsL and Deschubs before a .lw file is coded, so the strings
+ *      a small message shares with the samples have codes from its first
+ *      byte, instead of being learnt (and paid for) all over again in every
+ *      message.
+ *
+ *  Dictionary File
+ *      - (8 bits) code width n the dictionary was trained for
+ *      - (int) dictionary id (CRC-32 of the width and the entries)
+ *      - (int) number of entries k
+ *      - k entries, each (int) prefix << 8 | byte, where a prefix below 256 is
+ *        a single byte and 256 + j is entry j; entry j becomes code first + j
+ *        of the .lw dictionary (first is 257, or 258 with -r)
+ *
+ *  Process
+ *      Training runs LZW over the samples with one large table and counts how
+ *      often each entry is written. Adding each entry's count to its prefix
+ *      (and on down) gives how often every string was used, its own uses and
+ *      those of every longer string through it. The most used strings, up to
+ *      half of the free codes of width n and only strings used at least
+ *      twice, make the dictionary. A prefix is used at least as often as
+ *      anything that extends it, and ties go to the older (shorter) entry, so
+ *      every chosen entry's prefix is chosen too.
+ *
+ *      A compressed file records the id, and Deschubs refuses a dictionary
+ *      with any other id, rather than expand into garbage.
+ *
+ *  Trade-Offs
+ *      Every code of a primed file is as wide as the dictionary, so a large
+ *      dictionary only pays off when its strings really recur in the input.
+ *      The other half of the code space is left to strings the file teaches.
+ */
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import sedgewick.*;
+
+public class LzwDictionary {
+
+    private static final int R = 256;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int TRAIN_ENTRIES = 1 << 20;   // table size used to learn the samples
+
+    private final int width;
+    private final int id;
+    private final int[] entry;          // prefix << 8 | byte, prefixes numbered from R
+
+    private LzwDictionary(int width, int[] entry) {
+        this.width = width;
+        this.entry = entry;
+        id = checksum(width, entry);
+    }
+
+    // code width the dictionary was trained for
+    public int width() {
+        return width;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    // number of entries
+    public int size() {
+        return entry.length;
+    }
+
+    // prefix of entry j as a code of a dictionary whose entries start at "first"
+    public int prefix(int j, int first) {
+        int prefix = entry[j] >>> 8;
+        return prefix < R ? prefix : prefix - R + first;
+    }
+
+    // last byte of entry j
+    public int suffix(int j) {
+        return entry[j] & 0xff;
+    }
+
+    // -------------------------- TRAINING -------------------------- //
+
+    // learn a dictionary for codes of "width" bits from sample files
+    public static LzwDictionary train(String[] samples, int width) {
+        LzwTable st = new LzwTable(TRAIN_ENTRIES);
+        int[] entry = new int[TRAIN_ENTRIES];
+        long[] count = new long[TRAIN_ENTRIES];
+        int code = R;
+        byte[] buf = new byte[BUFFER_SIZE];
+
+        // plain LZW over every sample, counting the codes it writes
+        for (String sample : samples) {
+            if (!new File(sample).isFile()) continue;
+            BinaryIn in = new BinaryIn(sample);
+            try {
+                int s = -1, n;
+                while ((n = in.read(buf, 0, BUFFER_SIZE)) > 0) {
+                    int i = 0;
+                    if (s == -1) s = buf[i++] & 0xff;
+                    for (; i < n; i++) {
+                        int c = buf[i] & 0xff;
+                        int longer = st.get(s, c);
+                        if (longer != -1) {
+                            s = longer;
+                            continue;
+                        }
+                        count[s]++;
+                        if (code < TRAIN_ENTRIES) {
+                            st.put(s, c, code);
+                            entry[code++] = (s << 8) | c;
+                        }
+                        s = c;
+                    }
+                }
+                if (s != -1) count[s]++;
+            } finally {
+                in.close();
+            }
+        }
+
+        // uses of each string, counting the longer strings through it
+        // (an entry's prefix always has a smaller code)
+        for (int x = code - 1; x >= R; x--) {
+            int prefix = entry[x] >>> 8;
+            if (prefix >= R) count[prefix] += count[x];
+        }
+
+        // most used first, ties to the smaller code; order[] holds (count, code) keys
+        long[] order = new long[code - R];
+        for (int x = R; x < code; x++)
+            order[x - R] = (count[x] << 24) | (TRAIN_ENTRIES - 1 - x);
+        Arrays.sort(order);
+        int limit = maxEntries(width);
+        boolean[] chosen = new boolean[code];
+        int k = 0;
+        for (int i = order.length - 1; i >= 0 && k < limit; i--) {
+            if ((order[i] >>> 24) < 2) break;
+            chosen[TRAIN_ENTRIES - 1 - (int) (order[i] & 0xffffff)] = true;
+            k++;
+        }
+
+        // renumber the chosen entries in code order, so prefixes come first
+        int[] number = new int[code];
+        int[] dictionary = new int[k];
+        int j = 0;
+        for (int x = R; x < code; x++) {
+            if (!chosen[x]) continue;
+            number[x] = R + j;
+            int prefix = entry[x] >>> 8;
+            dictionary[j++] = ((prefix < R ? prefix : number[prefix]) << 8) | (entry[x] & 0xff);
+        }
+        return new LzwDictionary(width, dictionary);
+    }
+
+    // -------------------------- FILES -------------------------- //
+
+    public void write(String filepath) {
+        BinaryOut out = new BinaryOut(filepath);
+        try {
+            out.write((char) width);
+            out.write(id);
+            out.write(entry.length);
+            for (int i = 0; i < entry.length; i++)
+                out.write(entry[i]);
+        } finally {
+            out.close();
+        }
+    }
+
+    public static LzwDictionary read(String filepath) {
+        if (!new File(filepath).isFile())
+            throw new RuntimeException("No LZW dictionary " + filepath);
+        BinaryIn in = new BinaryIn(filepath);
+        try {
+            int width = in.readChar();
+            int id = in.readInt();
+            int k = in.readInt();
+            if (width < SchubsL.MIN_WIDTH || width > SchubsL.MAX_WIDTH || k < 0 || k > maxEntries(width))
+                throw new RuntimeException(filepath + " is not an LZW dictionary");
+            int[] entry = new int[k];
+            for (int j = 0; j < k; j++) {
+                entry[j] = in.readInt();
+                if ((entry[j] >>> 8) >= R + j)
+                    throw new RuntimeException(filepath + " is not an LZW dictionary");
+            }
+            LzwDictionary dictionary = new LzwDictionary(width, entry);
+            if (dictionary.id != id)
+                throw new RuntimeException(filepath + " is damaged (its id does not match its entries)");
+            return dictionary;
+        } finally {
+            in.close();
+        }
+    }
+
+    // half of the codes a .lw file of this width has free for entries
+    private static int maxEntries(int width) {
+        return ((1 << width) - (R + 2)) / 2;
+    }
+
+    // CRC-32 of the width and the entries
+    private static int checksum(int width, int[] entry) {
+        CRC32 crc = new CRC32();
+        crc.update(width);
+        for (int j = 0; j < entry.length; j++)
+            for (int shift = 24; shift >= 0; shift -= 8)
+                crc.update(entry[j] >>> shift);
+        return (int) crc.getValue();
+    }
+}
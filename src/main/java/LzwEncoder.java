@@ -0,0 +1,181 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *  Assignment: Final Compression Project
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: LzwEncoder
+ *  Dependencies: BitWriter.java LzwTable.java LzwLru.java LzwDictionary.java
+ *                SchubsL.java
+ *
+ *  ------------- CLI -------------
+ *  This file is not meant to be run from CLI (see SchubsL -w, -r, -l and -b)
+ *
+ * ------------- DESIGN -------------
+ *  Overview
+ *      The code stream of a .lw file (see SchubsL), without its header. Input
+ *      is handed over in pieces of any size, and the match in progress is
+ *      carried from one piece to the next, so the same encoder serves a
+ *      stream read a buffer at a time and a block held in memory.
+ *
+ *  Process
+ *      For each byte, look up (current match, byte) in the LzwTable. If it is
+ *      there the match grows; if not, the match's code is written with just
+ *      enough bits for the largest code the expander could see, (match, byte)
+ *      becomes the next code, and the byte starts a new match.
+ *
+ *      With RESET, once the dictionary is full the ratio of every CHECK_GAP
+ *      input bytes (input bits per output bit) is compared with the best
+ *      stretch since it filled; if it falls below RESET_RATIO of that, the
+ *      CLEAR code is written and the table starts again from single bytes.
+ *
+ *      With LRU, every code written is touched in an LzwLru, and once the
+ *      dictionary is full the new entry replaces the least recently used one
+ *      (unless that is the match just written, which the new entry extends;
+ *      then nothing is added). The expander makes the same choice.
+ *
+ *      With a preset LzwDictionary its entries are the first codes, before
+ *      any input (and again after every CLEAR), and the file goes on from there.
+ */
+
+public class LzwEncoder {
+
+    private static final int R = 256;               // single byte codes, R is EOF
+
+    // RESET: input bytes between ratio checks, and how far the ratio may drop
+    private static final int CHECK_GAP = 1 << 14;
+    private static final double RESET_RATIO = 0.9;
+
+    private final BitWriter bits;
+    private final LzwTable st;
+    private final LzwLru lru;                       // null unless LRU
+    private final LzwDictionary preset;             // null unless primed
+    private final int maxWidth;
+    private final int mode;
+    private final int size;                         // number of codewords
+    private final int clear = R+1;                  // CLEAR code (RESET only)
+    private final int first;                        // first code after the single bytes
+
+    private int code;                               // next free code
+    private int s = -1;                             // longest match so far, -1 before any input
+    private long read;                              // input bytes before the current piece
+
+    // ratio of the current stretch, and of the best one since the dictionary filled
+    private long checkIn;
+    private long checkOut;
+    private double best;
+
+    // an encoder writing codes of up to maxWidth bits; "entries" is the most
+    // codes the input can make (it only sizes the table)
+    public LzwEncoder(BitWriter bits, int maxWidth, int mode, int entries) {
+        this(bits, maxWidth, mode, entries, null);
+    }
+
+    // same, starting (and starting again after each CLEAR) from a preset dictionary
+    public LzwEncoder(BitWriter bits, int maxWidth, int mode, int entries, LzwDictionary preset) {
+        this.bits = bits;
+        this.maxWidth = maxWidth;
+        this.mode = mode;
+        this.preset = preset;
+        size = 1 << maxWidth;
+        first = (mode & SchubsL.RESET) != 0 ? R+2 : R+1;
+        if (preset != null) {
+            if (first + preset.size() > size)
+                throw new RuntimeException("A " + preset.size() + " entry dictionary needs codes wider than " + maxWidth + " bits");
+            entries += preset.size();
+        }
+        st = new LzwTable((int) Math.min(size, (long) entries));
+        lru = (mode & SchubsL.LRU) != 0 ? new LzwLru((int) Math.min(size, (long) first + entries), first) : null;
+        prime();
+    }
+
+    // encode buf[off..off+n)
+    public void encode(byte[] buf, int off, int n) {
+        if (n <= 0) return;
+        int i = off;
+        if (s == -1) s = buf[i++] & 0xff;
+        for (int end = off + n; i < end; i++) {
+            // extend the match s by one char, or write it and start a new one
+            int c = buf[i] & 0xff;
+            int longer = st.get(s, c);
+            if (longer != -1) {
+                s = longer;
+                continue;
+            }
+            bits.write(s, Math.min(maxWidth, SchubsL.bitsNeeded(code - 1)));
+            if (lru != null)
+                replace(s, c);
+            else if (code < size)
+                st.put(s, c, code++);
+            s = c;
+
+            if ((mode & SchubsL.RESET) != 0 && code == size)
+                checkRatio(read + i - off);
+        }
+        read += n;
+    }
+
+    // write the last match and EOF (the output is not flushed)
+    public void finish() {
+        if (s != -1)
+            bits.write(s, Math.min(maxWidth, SchubsL.bitsNeeded(code - 1)));
+        // no entry was added after the last code, but the expander counts one
+        // (unless there was no code at all)
+        bits.write(R, Math.min(maxWidth, SchubsL.bitsNeeded(s == -1 ? code - 1 : code)));
+    }
+
+    // load the preset dictionary, if any, as the first codes
+    private void prime() {
+        code = first;
+        if (preset == null) return;
+        for (int j = 0; j < preset.size(); j++, code++) {
+            st.put(preset.prefix(j, first), preset.suffix(j), code);
+            if (lru != null) lru.add(code, preset.prefix(j, first), preset.suffix(j));
+        }
+    }
+
+    // LRU: add (s, c) after s was written, as a new code or in place of the
+    // least recently used entry
+    private void replace(int s, int c) {
+        lru.touch(s);
+        int victim = code;
+        if (code < size) {
+            code++;
+        }
+        else {
+            victim = lru.oldest();
+            if (victim == s) return;
+            st.remove(lru.prefix(victim), lru.suffix(victim));
+            lru.remove(victim);
+        }
+        st.put(s, c, victim);
+        lru.add(victim, s, c);
+    }
+
+    // with a full dictionary, clear it if the ratio since the last check dropped;
+    // "at" is the number of input bytes encoded so far
+    private void checkRatio(long at) {
+        if (checkOut == 0) {
+            // the dictionary just filled: start measuring
+            checkIn = at;
+            checkOut = bits.bitsWritten();
+        }
+        else if (at - checkIn >= CHECK_GAP) {
+            double ratio = 8.0 * (at - checkIn) / (bits.bitsWritten() - checkOut);
+            if (ratio < RESET_RATIO * best) {
+                bits.write(clear, maxWidth);
+                st.clear();
+                prime();
+                checkOut = 0;
+                best = 0;
+            }
+            else {
+                best = Math.max(best, ratio);
+                checkIn = at;
+                checkOut = bits.bitsWritten();
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *  Assignment: Final Compression Project
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: LzwLru
+ *  Dependencies: none
+ *
+ *  ------------- CLI -------------
+ *  This file is not meant to be run from CLI (see SchubsL -l)
+ *
+ * ------------- DESIGN -------------
+ *  Overview
+ *      The recency order of an LZW dictionary in LRU mode. Once the dictionary
+ *      is full, each new entry takes the code of the least recently used one
+ *      instead of being dropped (FREEZE) or starting over (RESET). Compressor
+ *      and expander keep identical copies of this order, updated at the same
+ *      points, so they always agree on which code is reused next.
+ *
+ *  Process
+ *      The entries (codes from "first" up; single bytes are never evicted)
+ *      form a doubly linked list from newest to oldest, stored by code: the
+ *      entry itself (prefix << 8 | suffix) and its older and newer neighbours.
+ *
+ *      An entry is only safe to evict if no other entry extends it, because
+ *      the longer entry's prefix would then point at a reused code. So the
+ *      list always keeps every entry newer than the entries that extend it:
+ *          - using a code (touch) moves it to the front, then its prefix,
+ *            then the prefix's prefix, and so on, so the chain ends up newer
+ *            than everything below it
+ *          - a new entry is linked just behind its prefix, not at the front
+ *      The oldest entry therefore never has an extension, and evicting it is
+ *      one unlink.
+ *
+ *      The links are a direct ByteBuffer, outside the Java heap, like the
+ *      other LZW tables.
+ *
+ *  Trade-Offs
+ *      Every code costs a walk along its prefix chain, the same walk the
+ *      expander makes to output it, so compression is slower than with FREEZE
+ *      or RESET; in exchange the dictionary keeps following the input without
+ *      the drop in ratio after a full reset.
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class LzwLru {
+
+    private static final int NIL = -1;
+    private static final int NODE = 12;             // entry, older, newer
+
+    private final ByteBuffer nodes;
+    private final int first;
+    private int newest = NIL;
+    private int oldest = NIL;
+
+    // an order for codes first to size - 1
+    public LzwLru(int size, int first) {
+        this.first = first;
+        nodes = ByteBuffer.allocateDirect(NODE * size).order(ByteOrder.nativeOrder());
+    }
+
+    // the least recently used entry, the next one to be replaced
+    public int oldest() {
+        return oldest;
+    }
+
+    public int prefix(int code) {
+        return nodes.getInt(NODE * code) >>> 8;
+    }
+
+    public int suffix(int code) {
+        return nodes.getInt(NODE * code) & 0xff;
+    }
+
+    // add the entry (prefix, c) as "code", just behind its prefix
+    public void add(int code, int prefix, int c) {
+        nodes.putInt(NODE * code, (prefix << 8) | c);
+        if (prefix < first) {
+            linkNewest(code);
+            return;
+        }
+        int older = older(prefix);
+        setOlder(code, older);
+        setNewer(code, prefix);
+        setOlder(prefix, code);
+        if (older == NIL) oldest = code;
+        else              setNewer(older, code);
+    }
+
+    // take an entry out of the order (its code is about to be reused)
+    public void remove(int code) {
+        int older = older(code), newer = newer(code);
+        if (older == NIL) oldest = newer;
+        else              setNewer(older, newer);
+        if (newer == NIL) newest = older;
+        else              setOlder(newer, older);
+    }
+
+    // mark a code as just used: it and its prefixes become the newest entries,
+    // each prefix newer than the entry that extends it
+    public void touch(int code) {
+        for (int x = code; x >= first; x = prefix(x)) {
+            if (x == newest) continue;
+            remove(x);
+            linkNewest(x);
+        }
+    }
+
+    private void linkNewest(int code) {
+        setOlder(code, newest);
+        setNewer(code, NIL);
+        if (newest == NIL) oldest = code;
+        else               setNewer(newest, code);
+        newest = code;
+    }
+
+    private int older(int code) {
+        return nodes.getInt(NODE * code + 4);
+    }
+
+    private int newer(int code) {
+        return nodes.getInt(NODE * code + 8);
+    }
+
+    private void setOlder(int code, int older) {
+        nodes.putInt(NODE * code + 4, older);
+    }
+
+    private void setNewer(int code, int newer) {
+        nodes.putInt(NODE * code + 8, newer);
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *  Assignment: Final Compression Project
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: LzwTable
+ *  Dependencies: none
+ *
+ *  ------------- CLI -------------
+ *  This file is not meant to be run from CLI
+ *
+ * ------------- DESIGN -------------
+ *  Overview
+ *      The LZW compressor's dictionary. Every entry is a known string plus one
+ *      byte, so an entry is stored as the pair (code of the prefix, next byte)
+ *      mapped to its own code, instead of as the whole string. Finding the
+ *      longest match is then one lookup per input byte: start from the code of
+ *      the first byte and follow (code, next byte) while the pair is present.
+ *
+ *  Process
+ *      Open addressing with linear probing over (key, code) pairs of ints: the
+ *      key is (prefix << 8 | byte) and the code is 0 for an empty slot, since
+ *      codes 0 to 255 are single bytes and are never stored. There are at
+ *      least twice as many slots as entries, so probes stay short, and a pair
+ *      sits in one cache line, so a probe is usually one memory access.
+ *      Removing an entry (LRU mode reuses codes) shifts the rest of its probe
+ *      run back, so no tombstones are left behind.
+ *
+ *      The slots live in a direct ByteBuffer, outside the Java heap: a 2^24
+ *      entry dictionary is 256 MB of slots that the garbage collector never
+ *      has to scan or copy, and the heap does not have to be sized for it.
+ *      It is allocated once for the whole file.
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class LzwTable {
+
+    private static final int EMPTY = 0;
+    private static final int SLOT = 8;              // bytes per (key, code) pair
+
+    private final ByteBuffer slots;
+    private final int capacity;
+    private final int mask;
+    private final int shift;
+
+    // a table for up to "entries" (prefix, byte) pairs
+    public LzwTable(int entries) {
+        // the smallest power of two that is at least twice the entries
+        capacity = Integer.highestOneBit(2 * Math.max(entries, 1) - 1) << 1;
+        slots = ByteBuffer.allocateDirect(capacity * SLOT).order(ByteOrder.nativeOrder());
+        mask = capacity - 1;
+        shift = 32 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    // code of the string (prefix, c), or -1 if it is not in the table
+    public int get(int prefix, int c) {
+        int key = (prefix << 8) | c;
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            int code = slots.getInt(i * SLOT + 4);
+            if (code == EMPTY) return -1;
+            if (slots.getInt(i * SLOT) == key) return code;
+        }
+    }
+
+    // add the string (prefix, c) with the given code (it must not be present)
+    public void put(int prefix, int c, int code) {
+        int key = (prefix << 8) | c;
+        int i = slot(key);
+        while (slots.getInt(i * SLOT + 4) != EMPTY)
+            i = (i + 1) & mask;
+        slots.putInt(i * SLOT, key);
+        slots.putInt(i * SLOT + 4, code);
+    }
+
+    // remove the string (prefix, c), moving later entries of its probe run
+    // back so that every entry stays reachable from its own slot
+    public void remove(int prefix, int c) {
+        int key = (prefix << 8) | c;
+        int i = slot(key);
+        while (slots.getInt(i * SLOT) != key || slots.getInt(i * SLOT + 4) == EMPTY) {
+            if (slots.getInt(i * SLOT + 4) == EMPTY) return;
+            i = (i + 1) & mask;
+        }
+        for (int j = (i + 1) & mask; slots.getInt(j * SLOT + 4) != EMPTY; j = (j + 1) & mask) {
+            // the entry at j can fill the hole at i unless its own slot lies in (i, j]
+            int home = slot(slots.getInt(j * SLOT));
+            if (i < j ? (i < home && home <= j) : (i < home || home <= j)) continue;
+            slots.putInt(i * SLOT, slots.getInt(j * SLOT));
+            slots.putInt(i * SLOT + 4, slots.getInt(j * SLOT + 4));
+            i = j;
+        }
+        slots.putInt(i * SLOT + 4, EMPTY);
+    }
+
+    // remove every entry
+    public void clear() {
+        for (int i = 0; i < capacity; i++)
+            slots.putInt(i * SLOT + 4, EMPTY);
+    }
+
+    // multiplicative hash: the top bits of key * 2^32 / golden ratio
+    private int slot(int key) {
+        return (key * 0x9E3779B1) >>> shift;
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *  Assignment: Final Compression Project
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: RangeDecoder
+ *  Dependencies: BitReader.java RangeModel.java
+ *
+ *  ------------- CLI -------------
+ *  This file is not meant to be run from CLI (see Deschubs)
+ *
+ * ------------- DESIGN -------------
+ *  Overview
+ *      Undoes RangeEncoder. code is where the encoder's number lies inside
+ *      the current interval, so code / r is the cumulative frequency of the
+ *      next symbol's share, and the model's lookup table (one entry per unit
+ *      of frequency) turns that into the symbol without a search. Then the
+ *      interval is narrowed exactly as the encoder did, and bytes are read
+ *      in whole as the encoder shifted them out.
+ *
+ *  Trade-Offs
+ *      Each symbol costs one division (code / r), which the encoder does not
+ *      need; this is still a few times faster than walking a tree a bit at a
+ *      time, but slower than the table decoding of the Huffman formats.
+ */
+
+public class RangeDecoder {
+
+    private static final int TOP_MASK = 0xFF000000;
+
+    private final BitReader in;
+    private int range = 0xFFFFFFFF;     // unsigned, as in RangeEncoder
+    private int code = 0;               // unsigned, always below range
+
+    public RangeDecoder(BitReader in) {
+        this.in = in;
+        for (int i = 0; i < 4; i++)
+            code = (code << 8) | in.readBits(8);
+    }
+
+    // decode the next symbol of the model
+    public int decode(RangeModel model) {
+        int r = range >>> model.scaleBits;
+        long target = (code & 0xFFFFFFFFL) / r;
+        if (target >= 1 << model.scaleBits)
+            throw new RuntimeException("Corrupt range coded data");
+
+        int s = model.symbol[(int) target];
+        code -= model.cum[s] * r;
+        range = model.freq[s] * r;
+        while ((range & TOP_MASK) == 0) {
+            range <<= 8;
+            code = (code << 8) | in.readBits(8);
+        }
+        return s;
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *  Assignment: Final Compression Project
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: RangeEncoder
+ *  Dependencies: BitWriter.java RangeModel.java
+ *
+ *  ------------- CLI -------------
+ *  This file is not meant to be run from CLI (see SchubsH -r)
+ *
+ * ------------- DESIGN -------------
+ *  Overview
+ *      A range coder: instead of a whole number of bits per symbol, each
+ *      symbol narrows an interval [low, low + range) to its share of it, and
+ *      the output is enough of a number in the final interval to tell it
+ *      apart. A symbol of probability p costs -log2(p) bits, fractions
+ *      included, so a byte that is 99% likely costs 0.015 bits instead of
+ *      Huffman's 1.
+ *
+ *  Process
+ *      range is 32 bits, and the model's frequencies add up to 2^scaleBits
+ *      (see RangeModel), so a symbol with cumulative frequency cum and
+ *      frequency freq does
+ *          r = range >>> scaleBits
+ *          low += cum * r
+ *          range = freq * r
+ *      with a shift instead of a division. Whenever the top byte of range
+ *      is 0 the top byte of low is settled (but for a carry) and is shifted
+ *      out, a whole byte at a time: there is no per bit work at all.
+ *
+ *      A carry out of low can still add 1 to bytes already shifted out, so
+ *      the last one is held back (the cache), along with any 0xFF bytes after
+ *      it that the carry would ripple through, as in LZMA's coder.
+ *
+ *  Trade-Offs
+ *      The held back bytes can only be written once a later byte settles
+ *      them, so a stream that pauses cannot flush its last few bytes without
+ *      ending (see RangeModel). finish() adds one byte to the held back ones.
+ */
+
+public class RangeEncoder {
+
+    // range is kept at 2^24 or more, so r above is never 0
+    private static final int TOP_MASK = 0xFF000000;
+
+    private final BitWriter out;
+    private long low = 0;               // 33 bits: 32 and a carry
+    private int range = 0xFFFFFFFF;     // unsigned
+    private int cache = -1;             // held back byte, -1 before the first
+    private long pending = 1;           // the cache and the 0xFF bytes after it
+
+    public RangeEncoder(BitWriter out) {
+        this.out = out;
+    }
+
+    // narrow the interval to symbol s of the model, which must have a share
+    // of it (a symbol of frequency 0 would leave an empty interval)
+    public void encode(RangeModel model, int s) {
+        int r = range >>> model.scaleBits;
+        low += (long) model.cum[s] * r;
+        range = model.freq[s] * r;
+        if (range == 0)
+            throw new RuntimeException("Symbol " + s + " has frequency 0 in the range model");
+        while ((range & TOP_MASK) == 0) {
+            range <<= 8;
+            shiftLow();
+        }
+    }
+
+    // write out the held back bytes and enough of low to end the stream:
+    // any number in [low, low + range) will do, so take the one ending in 3
+    // zero bytes and leave those out (the decoder reads 0s past the end)
+    public void finish() {
+        low = (low + 0xFFFFFFL) & ~0xFFFFFFL;
+        shiftLow();
+        shiftLow();
+    }
+
+    // move the top byte of low out, or hold it back while a carry can change it
+    private void shiftLow() {
+        if (low < 0xFF000000L || low > 0xFFFFFFFFL) {
+            int carry = (int) (low >>> 32);
+            int c = cache;
+            do {
+                // the first cache is always 0 and is not written
+                if (c >= 0) out.write((c + carry) & 0xff, 8);
+                c = 0xff;
+            } while (--pending != 0);
+            cache = (int) (low >>> 24) & 0xff;
+        }
+        pending++;
+        low = (low & 0x00FFFFFFL) << 8;
+    }
+}
@@ -0,0 +1,394 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *  Assignment: Final Compression Project
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: RangeModel
+ *  Dependencies: BinaryIn.java BinaryOut.java BitReader.java BitWriter.java
+ *                RangeEncoder.java RangeDecoder.java
+ *
+ *  ------------- CLI -------------
+ *  This file is not meant to be run from CLI (see SchubsH -r and SchubsArc)
+ *
+ * ------------- DESIGN -------------
+ *  Overview
+ *      The frequency tables the range coder works from, and the .hr format
+ *      (also the body of a .zr archive): the bytes of a file range coded
+ *      instead of given Huffman codes. Huffman rounds every probability to a
+ *      power of 1/2, which wastes up to a bit per byte on skewed input (runs
+ *      of spaces in source code, a log where one byte is most of the file);
+ *      the range coder pays the exact fraction of a bit.
+ *
+ *  Model
+ *      The frequencies add up to 2^scaleBits (at most MAX_SCALE_BITS), so the
+ *      coder shifts instead of dividing, and every symbol that can occur has
+ *      a frequency of at least 1. Besides freq and cum (the sum of the
+ *      frequencies before a symbol), symbol[] holds the symbol of every one of
+ *      the 2^scaleBits units of frequency, which is what decoding looks up.
+ *
+ *      Static: the file is counted first and the counts are scaled to each
+ *      power of 2 from the number of different bytes up to the file size (at
+ *      most 2^15). Coarser frequencies make a smaller header but code the
+ *      bytes less exactly; the scale whose header and coded bytes add up to
+ *      the fewest bits is kept, which for a small file is well below 2^15.
+ *
+ *      Adaptive: every byte and EOF start with a count of 1, and each symbol
+ *      coded adds INCREMENT to its count, so the bytes seen soon outweigh the
+ *      ones that never come. Rebuilding the tables after every symbol would
+ *      cost 2^15 writes, so they are rebuilt after 32 symbols, then after
+ *      twice as many each time, up to every REBUILD_INTERVAL. Counts are
+ *      halved when they add up to more than COUNT_LIMIT, so the model follows
+ *      input that changes.
+ *
+ *  .hr File
+ *      - (8 bits) model: STATIC or ADAPTIVE
+ *      - static
+ *          - (long) number of bytes in original uncompressed message
+ *          - (8 bits) scaleBits
+ *          - for each of the 256 bytes, its frequency + 1 in Elias gamma code
+ *          - the range coded bytes
+ *      - adaptive
+ *          - the range coded bytes, then EOF (256)
+ *      An empty file is compressed to an empty file with the static model.
+ *
+ *  Trade-Offs
+ *      The static header (a gamma code for each of the 256 bytes) is usually
+ *      larger than a Huffman trie, so on small files that are not skewed .hh
+ *      can still come out ahead. Expanding is slower than
+ *      the table driven Huffman decoders (a division per byte, see
+ *      RangeDecoder). The adaptive model has no header and works on pipes,
+ *      but holds back the last few coded bytes until the stream ends.
+ */
+
+import java.util.Arrays;
+
+import sedgewick.*;
+
+public class RangeModel {
+
+    // first byte of a .hr file
+    public static final int STATIC = 0;
+    public static final int ADAPTIVE = 1;
+
+    // most units the frequencies are scaled to (2^15)
+    public static final int MAX_SCALE_BITS = 15;
+
+    private static final int R = 256;                   // alphabet size of extended ASCII
+    private static final int EOF = R;                   // ends an adaptive stream
+    private static final int FIRST_INTERVAL = 32;       // symbols before the first rebuild
+    private static final int REBUILD_INTERVAL = 1 << 12;
+    private static final int INCREMENT = 24;            // added to the count of a symbol seen
+    private static final int COUNT_LIMIT = 1 << 16;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    final int scaleBits;
+    final int[] freq;
+    final int[] cum;
+    final char[] symbol;
+
+    // adaptive models only
+    private int[] counts;
+    private int total;
+    private int interval;
+    private int untilRebuild;
+
+    // a model over "alphabet" symbols, all frequencies 0
+    private RangeModel(int alphabet, int scaleBits) {
+        this.scaleBits = scaleBits;
+        this.freq = new int[alphabet];
+        this.cum = new int[alphabet];
+        this.symbol = new char[1 << scaleBits];
+    }
+
+    // the static model for the counts of a file of size bytes that makes
+    // its header and coded bytes the smallest
+    public static RangeModel fromCounts(int[] counts, long size) {
+        int used = 0;
+        for (int s = 0; s < counts.length; s++)
+            if (counts[s] > 0) used++;
+
+        RangeModel best = null;
+        double fewest = Double.MAX_VALUE;
+        for (int bits = scaleBits(used); bits <= scaleBits(size); bits++) {
+            RangeModel model = new RangeModel(counts.length, bits);
+            model.normalize(counts);
+            double cost = model.headerBits() + model.codedBits(counts);
+            if (cost < fewest) {
+                best = model;
+                fewest = cost;
+            }
+        }
+        return best;
+    }
+
+    // an adaptive model over the 256 bytes and EOF, all equally likely
+    public static RangeModel adaptive() {
+        RangeModel model = new RangeModel(R + 1, MAX_SCALE_BITS);
+        model.counts = new int[R + 1];
+        Arrays.fill(model.counts, 1);
+        model.total = R + 1;
+        model.interval = FIRST_INTERVAL;
+        model.untilRebuild = FIRST_INTERVAL;
+        model.normalize(model.counts);
+        return model;
+    }
+
+    // the smallest scale of at least n units (1 to MAX_SCALE_BITS bits)
+    static int scaleBits(long n) {
+        int bits = 64 - Long.numberOfLeadingZeros(Math.max(1, n - 1));
+        return Math.min(MAX_SCALE_BITS, bits);
+    }
+
+    // -------------------------- TABLES -------------------------- //
+
+    // scale counts to frequencies adding up to 2^scaleBits, keeping every
+    // counted symbol at 1 or more, then rebuild the tables
+    private void normalize(int[] counts) {
+        int units = 1 << scaleBits;
+        long sum = 0;
+        for (int s = 0; s < counts.length; s++)
+            sum += counts[s];
+
+        int scaled = 0;
+        int largest = 0;
+        for (int s = 0; s < counts.length; s++) {
+            freq[s] = counts[s] == 0 ? 0 : (int) Math.max(1, counts[s] * (long) units / sum);
+            scaled += freq[s];
+            if (freq[s] > freq[largest]) largest = s;
+        }
+
+        // what rounding down left over goes to the most likely symbol; rare
+        // symbols raised to 1 can overshoot instead, then the others give back
+        if (scaled <= units)
+            freq[largest] += units - scaled;
+        for (int s = 0; scaled > units; s = (s + 1) % counts.length) {
+            if (freq[s] > 1) {
+                freq[s]--;
+                scaled--;
+            }
+        }
+        build();
+    }
+
+    // cumulative frequencies and the symbol of every unit
+    private void build() {
+        int c = 0;
+        for (int s = 0; s < freq.length; s++) {
+            cum[s] = c;
+            Arrays.fill(symbol, c, c + freq[s], (char) s);
+            c += freq[s];
+        }
+    }
+
+    // count one more s (adaptive models), rebuilding the tables now and then
+    public void update(int s) {
+        counts[s] += INCREMENT;
+        total += INCREMENT;
+        if (--untilRebuild > 0) return;
+
+        if (total > COUNT_LIMIT) {
+            total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = (counts[i] + 1) >>> 1;
+                total += counts[i];
+            }
+        }
+        normalize(counts);
+        interval = Math.min(2 * interval, REBUILD_INTERVAL);
+        untilRebuild = interval;
+    }
+
+    // bits the bytes counted in counts take with these frequencies
+    private double codedBits(int[] counts) {
+        double bits = 0;
+        for (int s = 0; s < counts.length; s++)
+            if (counts[s] > 0)
+                bits += counts[s] * (scaleBits - Math.log(freq[s]) / Math.log(2));
+        return bits;
+    }
+
+    // -------------------------- HEADER -------------------------- //
+
+    // bits writeFrequencies takes
+    private int headerBits() {
+        int bits = 0;
+        for (int s = 0; s < freq.length; s++)
+            bits += 2 * (31 - Integer.numberOfLeadingZeros(freq[s] + 1)) + 1;
+        return bits;
+    }
+
+    // write the scale and frequencies of a static model
+    private void writeFrequencies(BitWriter out) {
+        out.write(scaleBits, 8);
+        for (int s = 0; s < freq.length; s++)
+            writeGamma(out, freq[s] + 1);
+    }
+
+    // read the scale and frequencies of a static model
+    private static RangeModel readFrequencies(BitReader in) {
+        int scaleBits = in.readBits(8);
+        if (scaleBits < 1 || scaleBits > MAX_SCALE_BITS)
+            throw new RuntimeException("Invalid range coder scale " + scaleBits);
+        RangeModel model = new RangeModel(R, scaleBits);
+        long units = 0;
+        for (int s = 0; s < R; s++) {
+            model.freq[s] = readGamma(in, model.scaleBits + 1) - 1;
+            units += model.freq[s];
+        }
+        if (units != 1 << model.scaleBits)
+            throw new RuntimeException("Invalid range coder frequency header");
+        model.build();
+        return model;
+    }
+
+    // Elias gamma code: (bits - 1) zeros, then x in binary (x >= 1)
+    private static void writeGamma(BitWriter out, int x) {
+        int bits = 32 - Integer.numberOfLeadingZeros(x);
+        out.write(0, bits - 1);
+        out.write(x, bits);
+    }
+
+    // read a gamma code of at most maxZeros + 1 bits
+    private static int readGamma(BitReader in, int maxZeros) {
+        int zeros = 0;
+        while (!in.readBoolean()) {
+            if (++zeros > maxZeros) throw new RuntimeException("Invalid range coder frequency header");
+        }
+        return (1 << zeros) | in.readBits(zeros);
+    }
+
+    // -------------------------- .hr FILES -------------------------- //
+
+    // compress a file with a static model, in two buffered passes
+    public static void compress(String filepath, BinaryOut out) {
+
+        // first pass: count
+        int[] counts = new int[R];
+        long size = count(filepath, counts);
+        if (size == 0) return;
+        compress(filepath, out, counts, size);
+    }
+
+    // read the file once, counting each byte; returns the file size
+    static long count(String filepath, int[] counts) {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long size = 0;
+        BinaryIn in = new BinaryIn(filepath);
+        try {
+            int n;
+            while ((n = in.read(buffer, 0, BUFFER_SIZE)) > 0) {
+                for (int i = 0; i < n; i++)
+                    counts[buffer[i] & 0xff]++;
+                size += n;
+            }
+        } finally {
+            in.close();
+        }
+        return size;
+    }
+
+    // write the file with the model made from the counts of its first pass
+    // (size bytes); the second pass must find the file as it was counted
+    static void compress(String filepath, BinaryOut out, int[] counts, long size) {
+        RangeModel model = fromCounts(counts, size);
+        BitWriter bits = new BitWriter(out);
+        bits.write(STATIC, 8);
+        bits.write(size);
+        model.writeFrequencies(bits);
+
+        // second pass: code, stopping after size bytes; a byte the first pass
+        // did not count has no share of the range, and it or bytes past size
+        // mean the counts and the header no longer describe the file
+        RangeEncoder encoder = new RangeEncoder(bits);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long coded = 0;
+        BinaryIn in = new BinaryIn(filepath);
+        try {
+            int n;
+            while (coded < size && (n = in.read(buffer, 0, (int) Math.min(BUFFER_SIZE, size - coded))) > 0) {
+                for (int i = 0; i < n; i++) {
+                    int c = buffer[i] & 0xff;
+                    if (model.freq[c] == 0)
+                        throw new RuntimeException(filepath + " changed while it was being compressed");
+                    encoder.encode(model, c);
+                }
+                coded += n;
+            }
+            if (coded != size || !in.isEmpty())
+                throw new RuntimeException(filepath + " changed while it was being compressed");
+        } finally {
+            in.close();
+        }
+
+        encoder.finish();
+        bits.flush();
+    }
+
+    // compress everything in "in" to "out" with an adaptive model; after each
+    // read (all that has arrived so far) the bytes the coder has settled are
+    // flushed, but the few it holds back for a carry wait for later input
+    public static void compress(BinaryIn in, BinaryOut out) {
+        RangeModel model = adaptive();
+        BitWriter bits = new BitWriter(out);
+        bits.write(ADAPTIVE, 8);
+        RangeEncoder encoder = new RangeEncoder(bits);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int n;
+        while ((n = in.read(buffer, 0, BUFFER_SIZE)) > 0) {
+            for (int i = 0; i < n; i++) {
+                int c = buffer[i] & 0xff;
+                encoder.encode(model, c);
+                model.update(c);
+            }
+            bits.flushBytes();
+        }
+        encoder.encode(model, EOF);
+        encoder.finish();
+        bits.flush();
+    }
+
+    // expand a .hr file or stream from "in" to "out"
+    public static void expand(BinaryIn in, BinaryOut out) {
+        if (in.isEmpty()) return;
+
+        BitReader bits = new BitReader(in);
+        int kind = bits.readBits(8);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int n = 0;
+        if (kind == STATIC) {
+            long size = bits.readLong();
+            if (size <= 0) throw new RuntimeException("Invalid .hr size " + size);
+            RangeModel model = readFrequencies(bits);
+            RangeDecoder decoder = new RangeDecoder(bits);
+            for (long i = 0; i < size; i++) {
+                buffer[n++] = (byte) decoder.decode(model);
+                if (n == BUFFER_SIZE) {
+                    out.write(buffer, 0, n);
+                    n = 0;
+                }
+            }
+        }
+        else if (kind == ADAPTIVE) {
+            RangeModel model = adaptive();
+            RangeDecoder decoder = new RangeDecoder(bits);
+            while (true) {
+                int c = decoder.decode(model);
+                if (c == EOF) break;
+                model.update(c);
+                buffer[n++] = (byte) c;
+                if (n == BUFFER_SIZE) {
+                    out.write(buffer, 0, n);
+                    n = 0;
+                }
+            }
+        }
+        else {
+            throw new RuntimeException("Unknown .hr model " + kind);
+        }
+        out.write(buffer, 0, n);
+        out.flush();
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *  Assignment: Final Compression Project
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: SaIs
+ *  Dependencies: none
+ *
+ *  ------------- CLI -------------
+ *  This file is not meant to be run from CLI (see Bwt)
+ *
+ * ------------- DESIGN -------------
+ *  Overview
+ *      Builds suffix arrays in linear time with SA-IS (induced sorting, Nong,
+ *      Zhang and Chan 2009), on int arrays only: no suffix is ever compared
+ *      character by character, so a block of one repeated byte takes as long
+ *      as a block of text.
+ *
+ *  Process
+ *      Every suffix is S-type (smaller than the suffix after it) or L-type
+ *      (larger); an LMS position is an S-type one right after an L-type one.
+ *          1. Put the LMS positions at the ends of their first character's
+ *             buckets, then induce: one pass left to right places the L-type
+ *             suffixes, one pass right to left the S-type ones. This sorts the
+ *             LMS substrings (from one LMS position to the next).
+ *          2. Name each LMS substring by its rank. If two are equal, sort the
+ *             string of names recursively; it is at most half as long.
+ *          3. Put the LMS suffixes, now in order, at the ends of their buckets
+ *             and induce once more, which sorts every suffix.
+ *
+ *  Input
+ *      s[0..n) over the alphabet 0..k-1, where s[n-1] == 0 is a sentinel
+ *      that appears nowhere else. sort() adds it to a byte array.
+ *
+ *  Trade-Offs
+ *      Memory is the int array of the input, the suffix array, a type per
+ *      position and the names of the LMS substrings, plus less again for the
+ *      recursion: about 13 bytes per input byte, which is why the BWT works
+ *      on blocks.
+ */
+
+import java.util.Arrays;
+
+public class SaIs {
+
+    private static final int R = 256;
+    private static final int EMPTY = -1;
+
+    // suffix array of data[0..n), n + 1 long: sa[i] is where the i-th
+    // smallest suffix starts, the first being the empty one (sa[0] == n)
+    // and a suffix that is a prefix of another the smaller
+    public static int[] sort(byte[] data, int n) {
+        int[] s = new int[n + 1];
+        for (int i = 0; i < n; i++)
+            s[i] = (data[i] & 0xff) + 1;
+        int[] sa = new int[n + 1];
+        sort(s, sa, n + 1, R + 1);
+        return sa;
+    }
+
+    // suffix array of s[0..n) into sa[0..n), for s as described above
+    public static void sort(int[] s, int[] sa, int n, int k) {
+        if (n == 1) {
+            sa[0] = 0;
+            return;
+        }
+
+        // classify: S-type if smaller than the suffix after it
+        boolean[] stype = new boolean[n];
+        stype[n - 1] = true;
+        for (int i = n - 2; i >= 0; i--)
+            stype[i] = s[i] < s[i + 1] || (s[i] == s[i + 1] && stype[i + 1]);
+
+        // 1. sort the LMS substrings
+        int[] bucket = new int[k];
+        bucketEnds(s, bucket, n, k);
+        Arrays.fill(sa, 0, n, EMPTY);
+        for (int i = 1; i < n; i++)
+            if (isLms(stype, i))
+                sa[--bucket[s[i]]] = i;
+        induce(s, sa, stype, bucket, n, k);
+
+        // the sorted LMS positions to the front
+        int lms = 0;
+        for (int i = 0; i < n; i++)
+            if (isLms(stype, sa[i]))
+                sa[lms++] = sa[i];
+
+        // 2. name them, equal substrings alike, storing the name of position p
+        // at lms + p / 2 (LMS positions are at least 2 apart)
+        Arrays.fill(sa, lms, n, EMPTY);
+        int names = 0;
+        int prev = EMPTY;
+        for (int i = 0; i < lms; i++) {
+            int pos = sa[i];
+            if (prev == EMPTY || !equalLms(s, stype, n, pos, prev)) names++;
+            prev = pos;
+            sa[lms + pos / 2] = names - 1;
+        }
+        int[] reduced = new int[lms];
+        for (int i = lms, j = 0; i < n; i++)
+            if (sa[i] >= 0)
+                reduced[j++] = sa[i];
+
+        // sort the LMS suffixes by their names, recursively if two are alike
+        int[] reducedSa = new int[lms];
+        if (names < lms) {
+            sort(reduced, reducedSa, lms, names);
+        }
+        else {
+            for (int i = 0; i < lms; i++)
+                reducedSa[reduced[i]] = i;
+        }
+
+        // 3. the LMS suffixes in order, then every suffix
+        for (int i = 1, j = 0; i < n; i++)
+            if (isLms(stype, i))
+                reduced[j++] = i;
+        bucketEnds(s, bucket, n, k);
+        Arrays.fill(sa, 0, n, EMPTY);
+        for (int i = lms - 1; i >= 0; i--) {
+            int pos = reduced[reducedSa[i]];
+            sa[--bucket[s[pos]]] = pos;
+        }
+        induce(s, sa, stype, bucket, n, k);
+    }
+
+    // place the L-type suffixes from the S-type ones in sa, then the S-type
+    // suffixes from the L-type ones
+    private static void induce(int[] s, int[] sa, boolean[] stype, int[] bucket, int n, int k) {
+        bucketStarts(s, bucket, n, k);
+        for (int i = 0; i < n; i++) {
+            int j = sa[i] - 1;
+            if (j >= 0 && !stype[j])
+                sa[bucket[s[j]]++] = j;
+        }
+        bucketEnds(s, bucket, n, k);
+        for (int i = n - 1; i >= 0; i--) {
+            int j = sa[i] - 1;
+            if (j >= 0 && stype[j])
+                sa[--bucket[s[j]]] = j;
+        }
+    }
+
+    // whether the LMS substrings at a and b are equal
+    private static boolean equalLms(int[] s, boolean[] stype, int n, int a, int b) {
+        for (int d = 0; a + d < n && b + d < n; d++) {
+            if (s[a + d] != s[b + d] || stype[a + d] != stype[b + d]) return false;
+            if (d > 0 && (isLms(stype, a + d) || isLms(stype, b + d)))
+                return isLms(stype, a + d) && isLms(stype, b + d);
+        }
+        return false;
+    }
+
+    private static boolean isLms(boolean[] stype, int i) {
+        return i > 0 && stype[i] && !stype[i - 1];
+    }
+
+    // first slot of each character's bucket
+    private static void bucketStarts(int[] s, int[] bucket, int n, int k) {
+        Arrays.fill(bucket, 0, k, 0);
+        for (int i = 0; i < n; i++)
+            bucket[s[i]]++;
+        for (int c = 0, sum = 0; c < k; c++) {
+            int count = bucket[c];
+            bucket[c] = sum;
+            sum += count;
+        }
+    }
+
+    // one past the last slot of each character's bucket
+    private static void bucketEnds(int[] s, int[] bucket, int n, int k) {
+        Arrays.fill(bucket, 0, k, 0);
+        for (int i = 0; i < n; i++)
+            bucket[s[i]]++;
+        for (int c = 0, sum = 0; c < k; c++) {
+            sum += bucket[c];
+            bucket[c] = sum;
+        }
+    }
+}
@@ -7,7 +7,7 @@
  * 
  * ------------- CLASS INFO -------------
  *  Class: SchubsArc
- *  Dependencies: BinaryIn.java BinaryOut.java MinPQ.java
+ *  Dependencies: BinaryIn.java BinaryOut.java MinPQ.java RangeModel.java
  *  Modified Version of Files From: Class Session in SE2
  * 
  *  ------------- CLI -------------
@@ -16,7 +16,13 @@
  *  To Compress a File
  *      > mvn compile
  *      > java -cp target/classes SchubsArc <archivename>.zh <filename>
+ *
+ *  An archive named <archivename>.zr is range coded instead of Huffman coded
+ *  (as SchubsH -r, static model), smaller when the files are skewed.
  *  
+ *  Options (given before the archive name)
+ *      -m <n>  limit the Huffman codes to n bits (see SchubsH); not for .zr
+ *
  *  To Test
  *      > mvn test
  *      Note: tests can be found in src/tests/java
@@ -30,7 +36,7 @@
  * 
  * ------------- DESIGN -------------
  *  Overview/Process
- *      Tar files then use Huffman to compress the tar.
+ *      Tar files then use Huffman (or the range coder, for .zr) to compress the tar.
  * 
  *      Tarring lets us organize multiple files into one according to an agreement (details below).
  *      This allows for us to compress a single tar file. This is beneficial because we can have only
@@ -48,6 +54,7 @@
  */
  
 import java.io.File;
+import java.util.Arrays;
 
 import sedgewick.*;
 
@@ -96,8 +103,30 @@ public class SchubsArc {
         }
     }
 
+    // range code the tar file into "<tarname>.zr" (see RangeModel)
+    private static void rangeCompress(String tarname) {
+        BinaryOut out = new BinaryOut(tarname + ".zr");
+        try {
+            RangeModel.compress(tarname, out);
+        } catch (RuntimeException e) {
+            // do not leave a truncated archive behind
+            out.close();
+            new File(tarname + ".zr").delete();
+            throw e;
+        } finally {
+            out.close();
+        }
+    }
+
     public static void main(String[] args) {
 
+        // -m <n> limits the Huffman codes of the archive to n bits
+        HelperArcH.maxCodeLength = 0;
+        if (args.length > 1 && args[0].equals("-m")) {
+            HelperArcH.maxCodeLength = SchubsH.parseMaxCodeLength(args[1]);
+            args = Arrays.copyOfRange(args, 2, args.length);
+        }
+
         if (args.length < 2) {
             System.out.println("Please enter the correct number of arguments");
             return;
@@ -106,11 +135,18 @@ public class SchubsArc {
         BinaryOut out = null;
         String archiveName = args[0];
 
+        // the range coder has no code lengths to limit
+        if (HelperArcH.maxCodeLength > 0 && archiveName.endsWith(".zr")) {
+            System.err.println("-m cannot be used for a .zr archive");
+            return;
+        }
+
         // get archive extension -> lets us know which type of compression
         String extension = args[0].substring(args[0].lastIndexOf(".") + 1);
         
         switch (extension) {
             case "zh":
+            case "zr":
 
                 // tar the files into "archive.zh"
                 try {
@@ -128,12 +164,19 @@ public class SchubsArc {
 
                 // at this point there is a tar file called <archive> (no extension)
 
-                // compress (Huffman) on tar file (adds ".zh" extension)
-                HelperArcH.main(new String[] { archiveName.substring(0,archiveName.lastIndexOf(".")) });
-                File del = new File(archiveName.substring(0,archiveName.lastIndexOf(".")));
-                if (del.exists())
-                    if (!del.delete())
-                        System.out.println("didn't delete file");
+                // compress (Huffman) on tar file (adds ".zh" extension); the
+                // tar is deleted even if that fails
+                try {
+                    if (extension.equals("zh"))
+                        HelperArcH.main(new String[] { archiveName.substring(0,archiveName.lastIndexOf(".")) });
+                    else
+                        rangeCompress(archiveName.substring(0,archiveName.lastIndexOf(".")));
+                } finally {
+                    File del = new File(archiveName.substring(0,archiveName.lastIndexOf(".")));
+                    if (del.exists())
+                        if (!del.delete())
+                            System.out.println("didn't delete file");
+                }
                 
                 break;
             default:
@@ -0,0 +1,80 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *  Assignment: Final Compression Project
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: SchubsB
+ *  Dependencies: BinaryOut.java BwtBlocks.java Bwt.java SaIs.java
+ *
+ *  ------------- CLI -------------
+ *  Note: "/" or "\" may vary depending on OS
+ *
+ *  To Compress a File
+ *      > mvn compile
+ *      > java -cp target/classes SchubsB <filename>
+ *
+ *  Example
+ *     This will compress all files in huffmanTests into their own *.txt.bw files
+ *     > java -cp target/classes/ SchubsB src/files/huffmanTests/*.txt
+ *
+ *     To uncompress...
+ *     > java -cp target/classes/ Deschubs src/files/huffmanTests/test1.txt.bw
+ *
+ *  The blocks are compressed on all cores, so files only (no "-" for pipes).
+ *
+ *  To Test
+ *     > mvn test
+ *     Note: tests can be found in src/tests/java
+ *
+ * ------------- DESIGN -------------
+ *  Overview
+ *      A block sorting compressor in the style of bzip2: each block is
+ *      rearranged by the Burrows-Wheeler transform so bytes with the same
+ *      context sit together, then move-to-front, a run length code for zeros
+ *      and Huffman coding squeeze out the runs that leaves (see BwtBlocks).
+ *
+ *  Process
+ *      The input is cut into blocks of BwtBlocks.BLOCK_SIZE bytes and each
+ *      block is coded on its own, on a pool of one thread per core. The
+ *      suffix array the transform needs is built in linear time (see SaIs).
+ *
+ *  Trade-Offs
+ *      On text this beats the LZ formats, since a sorted context predicts
+ *      the next byte better than the last match did, but both directions
+ *      work a whole block at a time, and expanding is slower than LZ77.
+ */
+
+import sedgewick.*;
+
+import java.io.File;
+
+public class SchubsB {
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Please enter the correct number of arguments");
+            return;
+        }
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            File file = new File(args[i]);
+            if (!file.exists()) continue;
+
+            BinaryOut out = new BinaryOut(args[i] + ".bw");
+            try {
+                BwtBlocks.compress(args[i], out, threads);
+            } catch (RuntimeException e) {
+                // do not leave a truncated file behind
+                out.close();
+                new File(args[i] + ".bw").delete();
+                throw e;
+            } finally {
+                out.close();
+            }
+        }
+    }
+}
@@ -7,7 +7,10 @@
  * 
  * ------------- CLASS INFO -------------
  *  Class: SchubsH
- *  Dependencies: BinaryIn.java BinaryOut.java MinPQ.java
+ *  Dependencies: BinaryIn.java BinaryOut.java CanonicalHuffman.java
+ *                HuffmanLengths.java BitWriter.java HuffmanBlocks.java
+ *                AdaptiveHuffman.java ContextHuffman.java RangeModel.java
+ *                RangeEncoder.java
  *  Modified Version of Files From:   http://algs4.cs.princeton.edu/55compression/
  * 
  *  ------------- CLI -------------
@@ -24,6 +27,30 @@
  *     To uncompress...
  *     > java -cp target/classes/ Deschubs src/files/huffmanTests/test1.txt.hh
  *
+ *  Options (given before the files they apply to)
+ *     -c       canonical Huffman: store code lengths instead of the trie (*.hc)
+ *     -m <n>   limit codes to n bits (8 to 62), e.g. -m 11 or -m 15; the ratio
+ *              this costs is printed to stderr
+ *     -b       block layout (*.hc): 1 MB blocks, each with its own canonical
+ *              code, compressed and expanded on all cores (see HuffmanBlocks)
+ *     -4       like -b, but each block is coded into 4 interleaved bitstreams
+ *              that are decoded together (faster to expand)
+ *     -p       count and encode on all cores; the output is byte for byte the
+ *              same as without -p (works with .hh and -c)
+ *     -1       order-1 (*.hc): a separate code for each previous byte, smaller
+ *              on text (see ContextHuffman)
+ *     -g <n>   order-1 with the previous bytes clustered into at most n
+ *              (1 to 256) codes, for a smaller header, e.g. -g 8
+ *     -a       adaptive Huffman (*.ha): one pass, no header, output starts
+ *              right away; the file "-" means standard input to standard output
+ *              > tail -f app.log | java -cp target/classes SchubsH -a - > app.log.ha
+ *     -r       range coder instead of Huffman codes (*.hr): a byte costs its
+ *              exact fraction of a bit, smaller on skewed input (see RangeModel);
+ *              with -a the model adapts as it goes (one pass, no header, and
+ *              "-" works as with -a); cannot be combined with -c, -m, -b,
+ *              -4, -p, -1 or -g
+ *              > java -cp target/classes SchubsH -a -r - < app.log > app.log.hr
+ *
  *  To Test
  *      > mvn test
  *      Note: tests can be found in src/tests/java
@@ -41,54 +68,78 @@
  *      table. The algorithm then uses this frequency table to construct its encoding 
  *      scheme. It then write the encoding scheme to the file (so the “decompresser” 
  *      has the key) followed by the contents of the file (now encoded). 
+ *
+ *      Only the length of each code is computed (HuffmanLengths.huffman, two
+ *      sorted queues over int arrays, no node objects); the codes are the
+ *      canonical codes for those lengths, and the trie written to a .hh file
+ *      is walked straight from them.
+ *
+ *      Each code is kept as an int, (code << 6) | length, and written through a
+ *      BitWriter, which collects bits in a long and writes whole bytes, so
+ *      encoding does not allocate or call a method per output bit.
  *  
  *  Trade-Offs
  *      Has to read through the file twice
  *          - once to create frequency table
  *          - twice to actually encode the file
  *          Given this, for extremely large files this can be taxing.
+ *          Both passes stream the file through a fixed size buffer (the file is
+ *          opened once per pass), so memory use does not grow with the file.
+ *          With -p the file is memory mapped instead and both passes run on all
+ *          cores: 1 MB chunks are counted with a fork/join task whose
+ *          histograms are merged, then encoded into separate bit buffers that
+ *          are appended to the output at bit granularity (BitWriter.writeBits).
  * 
  *      Has to write the encoding table (Huffman Tree) to the file.
  *          For extremely short files, Huffman compression may actually increase the 
  *          size of the file due to the storing of both the encoding table and the 
  *          encoded contents in the file. 
+ *          With -c only the length of each code is written (see
+ *          CanonicalHuffman), which is roughly half the size of the tree.
+ *
+ *      Code length limit (-m)
+ *          On skewed input Huffman codes can get very long. -m builds the
+ *          cheapest code that fits in n bits (package-merge, see HuffmanLengths)
+ *          so decoders can rely on a fixed upper bound. It only costs ratio when
+ *          the unlimited code is deeper than n; the cost is printed per file.
+ *
+ *      Whole bits per byte (-r)
+ *          A Huffman code is a whole number of bits, so a byte that is 90% of
+ *          the input still costs 1 bit instead of 0.15. -r range codes the
+ *          bytes instead (see RangeEncoder), for a larger header and slower
+ *          expanding.
  */
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 import sedgewick.*;
 
 public class SchubsH {
 
     // alphabet size of extended ASCII
     private static final int R = 256;
-    public static boolean logging = true;
-    private static BinaryIn in;
-    private static BinaryOut out;
 
-    // Huffman trie node
-    private static class Node implements Comparable<Node> {
-        private final char ch;
-        private final int freq;
-        private final Node left, right;
-
-        Node(char ch, int freq, Node left, Node right) {
-            this.ch    = ch;
-            this.freq  = freq;
-            this.left  = left;
-            this.right = right;
-        }
+    // bytes read from the file at a time
+    private static final int BUFFER_SIZE = 1 << 16;
 
-        // is the node a leaf node?
-        private boolean isLeaf() {
-            assert (left == null && right == null) || (left != null && right != null);
-            return (left == null && right == null);
-        }
+    // bytes per parallel task (-p)
+    private static final int CHUNK_SIZE = 1 << 20;
+    public static boolean logging = true;
 
-        // compare, based on frequency
-        public int compareTo(Node that) {
-            return this.freq - that.freq;
-        }
-    }
+    // longest code allowed, 0 for no limit (set with -m)
+    public static int maxCodeLength = 0;
+    private static BinaryIn in;
+    private static BinaryOut out;
 
     public static void err_print(String msg){
         if (logging)
@@ -100,109 +151,371 @@ public class SchubsH {
             System.err.println(msg);
     }
 
-    // compress bytes from standard input and write to standard output
-    public static void compress() {
-
-        if (in.isEmpty()) return;
-
-        // read the input
-        String s = in.readString();
-        char[] input = s.toCharArray();
+    // compress a file in two buffered passes: count, then encode
+    public static void compress(String filepath) {
 
-        // tabulate frequency counts
+        // first pass: tabulate frequency counts
         int[] freq = new int[R];
-        for (int i = 0; i < input.length; i++)
-            freq[input[i]]++;
+        int size = countFrequencies(filepath, freq);
+        if (size == 0) return;
 
-        // build Huffman trie
-        Node root = buildTrie(freq);
+        // build code table (a lone symbol is a one leaf trie, coded with 0 bits)
+        int[] length = codeLengths(freq);
+        long[] code = CanonicalHuffman.assignCodes(length);
 
-        // build code table
-        String[] st = new String[R];
-        buildCode(st, root, "");
+        // everything goes through one BitWriter so no bit is written on its own
+        BitWriter bits = new BitWriter(out);
 
         // print trie for decoder
-        writeTrie(root);
-        // err_println("writeTrie");
+        writeTrie(bits, length, code);
+
+        // print number of bytes in original uncompressed message
+        bits.write(size);
+
+        // second pass: use Huffman code to encode input
+        encode(bits, filepath, size, length, code);
+
+        // flush output stream
+        bits.flush();
+    }
+
+    // compress into the canonical format: code lengths instead of the trie
+    public static void compressCanonical(String filepath) {
+
+        // first pass: tabulate frequency counts
+        int[] freq = new int[R];
+        int size = countFrequencies(filepath, freq);
+        if (size == 0) return;
+
+        // build code lengths (a lone symbol gets a 1 bit code in the table
+        // but no bits in the output)
+        int[] length = codeLengths(freq);
+        long[] code = CanonicalHuffman.assignCodes(length);
+
+        // print layout and code lengths for decoder
+        BitWriter bits = new BitWriter(out);
+        bits.write((char) CanonicalHuffman.SINGLE_TABLE);
+        CanonicalHuffman.writeLengths(bits, length);
 
         // print number of bytes in original uncompressed message
-        out.write(input.length);
-        // err_println("writing input length " + input.length);
-
-        // err_println("happily encoding... ");
-        // String compressed = "";
-        // use Huffman code to encode input
-        for (int i = 0; i < input.length; i++) {
-            String code = st[input[i]];
-            // err_print("Char " + input[i] + " ");
-            for (int j = 0; j < code.length(); j++) {
-                if (code.charAt(j) == '0') {
-                    out.write(false);
-                    // compressed += "0";
-                    // err_print("0");
+        bits.write(size);
+
+        // second pass: use canonical code to encode input
+        encode(bits, filepath, size, length, code);
+
+        // flush output stream
+        bits.flush();
+    }
+
+    // compress on every core: the file is memory mapped, its chunks are counted
+    // and encoded in parallel, and the output is identical to the serial path
+    public static void compressParallel(String filepath, boolean canonical) {
+        RandomAccessFile file = null;
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            file = new RandomAccessFile(filepath, "r");
+            long size = file.length();
+            if (size == 0) return;
+            if (size > Integer.MAX_VALUE)
+                throw new RuntimeException(filepath + " is too large to compress (" + size + " bytes)");
+            MappedByteBuffer data = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            // first pass: chunk histograms, counted in parallel and merged
+            int[] freq = pool.invoke(new CountTask(data, 0, (int) size));
+
+            // same header as compress() / compressCanonical()
+            int[] length = codeLengths(freq);
+            long[] code = CanonicalHuffman.assignCodes(length);
+            BitWriter bits = new BitWriter(out);
+            if (canonical) {
+                bits.write((char) CanonicalHuffman.SINGLE_TABLE);
+                CanonicalHuffman.writeLengths(bits, length);
+            }
+            else {
+                writeTrie(bits, length, code);
+            }
+            bits.write((int) size);
+            if (CanonicalHuffman.loneSymbol(length) != -1) {
+                bits.flush();
+                return;
+            }
+
+            // second pass: chunks are encoded into their own bit buffers, a
+            // few per thread at a time, and appended in order at bit granularity
+            int[] packed = BitWriter.pack(length, code);
+            int wave = 2 * pool.getParallelism();
+            List<EncodeTask> tasks = new ArrayList<EncodeTask>();
+            for (int start = 0; start < size; ) {
+                for (int i = 0; i < wave && start < size; i++) {
+                    int end = (int) Math.min(size, (long) start + CHUNK_SIZE);
+                    EncodeTask task = new EncodeTask(data, start, end, packed, length, code);
+                    pool.execute(task);
+                    tasks.add(task);
+                    start = end;
                 }
-                else if (code.charAt(j) == '1') {
-                    out.write(true);
-                    // compressed += "1";
-                    // err_print("1");
+                for (EncodeTask task : tasks) {
+                    task.join();
+                    bits.writeBits(task.encoded, task.bitCount);
                 }
-                else throw new RuntimeException("Illegal state");
+                tasks.clear();
+            }
+            bits.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read " + filepath, e);
+        } finally {
+            pool.shutdown();
+            try {
+                if (file != null)
+                    file.close();
+            } catch (IOException e) {
+                e.printStackTrace();
             }
-            // err_println("");
         }
+    }
 
-        // System.out.println(compressed);
+    // histogram of data[lo..hi), split in halves until a chunk is small enough
+    private static class CountTask extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
 
-        // flush output stream
-        out.flush();
+        private final ByteBuffer data;
+        private final int lo, hi;
+
+        CountTask(ByteBuffer data, int lo, int hi) {
+            this.data = data;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        protected int[] compute() {
+            if (hi - lo <= CHUNK_SIZE) {
+                byte[] chunk = new byte[hi - lo];
+                ByteBuffer view = data.duplicate();
+                view.position(lo);
+                view.get(chunk);
+                int[] freq = new int[R];
+                for (int i = 0; i < chunk.length; i++)
+                    freq[chunk[i] & 0xff]++;
+                return freq;
+            }
+            int mid = (lo + hi) >>> 1;
+            CountTask left = new CountTask(data, lo, mid);
+            left.fork();
+            int[] freq = new CountTask(data, mid, hi).compute();
+            int[] other = left.join();
+            for (int c = 0; c < R; c++)
+                freq[c] += other[c];
+            return freq;
+        }
     }
 
-    // build the Huffman trie given frequencies
-    private static Node buildTrie(int[] freq) {
+    // encode data[lo..hi) into its own bit buffer
+    private static class EncodeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ByteBuffer data;
+        private final int lo, hi;
+        private final int[] packed, length;
+        private final long[] code;
+        private byte[] encoded;
+        private long bitCount;
+
+        EncodeTask(ByteBuffer data, int lo, int hi, int[] packed, int[] length, long[] code) {
+            this.data = data;
+            this.lo = lo;
+            this.hi = hi;
+            this.packed = packed;
+            this.length = length;
+            this.code = code;
+        }
 
-        // initialze priority queue with singleton trees
-        MinPQ<Node> pq = new MinPQ<Node>();
-        for (char i = 0; i < R; i++)
-            if (freq[i] > 0)
-                pq.insert(new Node(i, freq[i], null, null));
+        protected void compute() {
+            byte[] chunk = new byte[hi - lo];
+            ByteBuffer view = data.duplicate();
+            view.position(lo);
+            view.get(chunk);
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(chunk.length / 2 + 16);
+            BinaryOut chunkOut = new BinaryOut(bytes);
+            BitWriter bits = new BitWriter(chunkOut);
+
+            // a byte with no code was not there when the file was counted
+            if (packed != null) {
+                for (int i = 0; i < chunk.length; i++) {
+                    int p = packed[chunk[i] & 0xff];
+                    if (p == 0)
+                        throw new RuntimeException("The file changed while it was being compressed");
+                    bits.writeCode(p);
+                }
+            }
+            else {
+                for (int i = 0; i < chunk.length; i++) {
+                    int c = chunk[i] & 0xff;
+                    if (length[c] == 0)
+                        throw new RuntimeException("The file changed while it was being compressed");
+                    bits.writeCode(code[c], length[c]);
+                }
+            }
+            bitCount = bits.bitsWritten();
+            bits.flush();
+            encoded = bytes.toByteArray();
+        }
+    }
 
-        // merge two smallest trees
-        while (pq.size() > 1) {
-            Node left  = pq.delMin();
-            Node right = pq.delMin();
-            Node parent = new Node('\0', left.freq + right.freq, left, right);
-            //err_println("buildTrie parent " + left.freq + " " + right.freq);
-            pq.insert(parent);
+    // read the file once, counting each byte; returns the file size
+    static int countFrequencies(String filepath, int[] freq) {
+        long size = 0;
+        byte[] buffer = new byte[BUFFER_SIZE];
+        BinaryIn in = new BinaryIn(filepath);
+        try {
+            int n;
+            while ((n = in.read(buffer, 0, BUFFER_SIZE)) > 0) {
+                for (int i = 0; i < n; i++)
+                    freq[buffer[i] & 0xff]++;
+                size += n;
+            }
+        } finally {
+            in.close();
         }
-        return pq.delMin();
+
+        // the format stores the size as an int
+        if (size > Integer.MAX_VALUE)
+            throw new RuntimeException(filepath + " is too large to compress (" + size + " bytes)");
+        return (int) size;
     }
 
+    // code length of every symbol, at most maxCodeLength bits if it is set
+    private static int[] codeLengths(int[] freq) {
+        return codeLengths(freq, maxCodeLength, logging);
+    }
+
+    // same, with the limit given (0 for none); if log is set, the ratio the
+    // limit costs is printed to stderr
+    static int[] codeLengths(int[] freq, int maxCodeLength, boolean log) {
+        if (maxCodeLength > 0) {
+            int[] length = HuffmanLengths.packageMerge(freq, maxCodeLength);
+            if (log)
+                System.err.println(HuffmanLengths.describeLimit(freq, length, maxCodeLength));
+            return length;
+        }
+        return HuffmanLengths.huffman(freq);
+    }
 
-    // write bitstring-encoded trie to standard output
-    private static void writeTrie(Node x) {
-        if (x.isLeaf()) {
-            out.write(true);
-            out.write(x.ch);
-            //err_println("T" + x.ch);
+    // write the trie of a canonical code as a bitstring (preorder, 1 + byte per leaf)
+    static void writeTrie(BitWriter bits, int[] length, long[] code) {
+        int lone = CanonicalHuffman.loneSymbol(length);
+        if (lone != -1) {
+            bits.write(true);
+            bits.write((char) lone);
             return;
         }
-        out.write(false);
-        //err_print("F");
 
-        writeTrie(x.left);
-        writeTrie(x.right);
+        // lay the symbols out in code order and split them bit by bit
+        int n = 0;
+        long[] keys = new long[R];
+        for (int i = 0; i < R; i++)
+            if (length[i] > 0)
+                keys[n++] = ((long) length[i] << 9) | i;
+        java.util.Arrays.sort(keys, 0, n);
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++)
+            order[i] = (int) (keys[i] & 0x1ff);
+        writeTrie(bits, order, 0, n, 0, length, code);
+    }
+
+    // write the subtrie of the codes order[lo..hi), which share their first depth bits
+    private static void writeTrie(BitWriter bits, int[] order, int lo, int hi, int depth, int[] length, long[] code) {
+        int x = order[lo];
+        if (hi - lo == 1 && length[x] == depth) {
+            bits.write(true);
+            bits.write((char) x);
+            return;
+        }
+        bits.write(false);
+
+        // codes with a 0 as their next bit come first
+        int mid = lo;
+        while (mid < hi && ((code[order[mid]] >>> (length[order[mid]] - depth - 1)) & 1) == 0)
+            mid++;
+        writeTrie(bits, order, lo,  mid, depth + 1, length, code);
+        writeTrie(bits, order, mid, hi,  depth + 1, length, code);
+    }
+
+    // read the file again, encoding it with one packed (code, length) lookup per
+    // symbol; a lone symbol is coded with 0 bits, so its bytes are only checked.
+    // Reading stops after size bytes: a byte the first pass did not count (it
+    // has no code), or bytes past size, mean the file changed in between
+    static void encode(BitWriter bits, String filepath, int size, int[] length, long[] code) {
+        boolean lone = CanonicalHuffman.loneSymbol(length) != -1;
+        int[] packed = BitWriter.pack(length, code);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int total = 0;
+        BinaryIn in = new BinaryIn(filepath);
+        try {
+            int n;
+            while (total < size && (n = in.read(buffer, 0, Math.min(BUFFER_SIZE, size - total))) > 0) {
+                if (lone) {
+                    for (int i = 0; i < n; i++)
+                        if (length[buffer[i] & 0xff] == 0)
+                            throw changed(filepath);
+                }
+                else if (packed != null) {
+                    // a packed code is 0 only if its length is
+                    for (int i = 0; i < n; i++) {
+                        int p = packed[buffer[i] & 0xff];
+                        if (p == 0)
+                            throw changed(filepath);
+                        bits.writeCode(p);
+                    }
+                }
+                else {
+                    // codes longer than MAX_PACKED_LENGTH bits (very skewed input)
+                    for (int i = 0; i < n; i++) {
+                        int c = buffer[i] & 0xff;
+                        if (length[c] == 0)
+                            throw changed(filepath);
+                        bits.writeCode(code[c], length[c]);
+                    }
+                }
+                total += n;
+            }
+
+            // the first pass and the trie no longer describe the file
+            if (total != size || !in.isEmpty())
+                throw changed(filepath);
+        } finally {
+            in.close();
+        }
+    }
+
+    // the error for a file that is not what its first pass read
+    static RuntimeException changed(String filepath) {
+        return new RuntimeException(filepath + " changed while it was being compressed");
     }
 
-    // make a lookup table from symbols and their encodings
-    private static void buildCode(String[] st, Node x, String s) {
-        if (!x.isLeaf()) {
-            buildCode(st, x.left,  s + '0');
-            buildCode(st, x.right, s + '1');
+    // number of context groups given with -g, all 256 if it is not usable
+    static int parseContextGroups(String arg) {
+        try {
+            int groups = Integer.parseInt(arg);
+            if (groups >= 1 && groups <= ContextHuffman.MAX_GROUPS)
+                return groups;
+        } catch (NumberFormatException e) {
+            // fall through
         }
-        else {
-            st[x.ch] = s;
-            //err_println("buildCode " + x.ch + " " + s);
+        System.out.println("Context groups must be between 1 and " + ContextHuffman.MAX_GROUPS + ", using " + ContextHuffman.MAX_GROUPS);
+        return ContextHuffman.MAX_GROUPS;
+    }
+
+    // code length limit given with -m, 0 (no limit) if it is not usable
+    static int parseMaxCodeLength(String arg) {
+        try {
+            int bits = Integer.parseInt(arg);
+            if (bits >= 8 && bits <= HuffmanLengths.MAX_LENGTH)
+                return bits;
+        } catch (NumberFormatException e) {
+            // fall through
         }
+        System.out.println("Max code length must be between 8 and " + HuffmanLengths.MAX_LENGTH + ", ignoring " + arg);
+        return 0;
     }
 
     public static void main(String[] args) {
@@ -212,26 +525,135 @@ public class SchubsH {
             return;
         }
         
+        // -c writes the canonical format (.hc) instead of .hh
+        boolean canonical = false;
+        maxCodeLength = 0;
+
+        // -b writes the block layout of .hc (a code per block, made in parallel)
+        boolean blocks = false;
+
+        // -4 writes the block layout with 4 interleaved streams per block
+        boolean interleaved = false;
+
+        // -p counts and encodes on every core (same output as without it)
+        boolean parallel = false;
+
+        // -1 / -g <n> write the order-1 layout of .hc with at most n codes
+        int contextGroups = 0;
+
+        // -a writes the one pass adaptive format (.ha)
+        boolean adaptive = false;
+
+        // -r range codes the bytes (.hr), with an adaptive model if -a is given
+        boolean range = false;
+
         // iterate through arguments and compress each one into their
         // own respective file
         for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-c")) {
+                canonical = true;
+                continue;
+            }
+            if (args[i].equals("-p")) {
+                parallel = true;
+                continue;
+            }
+            if (args[i].equals("-b")) {
+                blocks = true;
+                continue;
+            }
+            if (args[i].equals("-a")) {
+                adaptive = true;
+                continue;
+            }
+            if (args[i].equals("-r")) {
+                range = true;
+                continue;
+            }
+            if (args[i].equals("-1")) {
+                contextGroups = ContextHuffman.MAX_GROUPS;
+                continue;
+            }
+            if (args[i].equals("-g") && i + 1 < args.length) {
+                contextGroups = parseContextGroups(args[++i]);
+                continue;
+            }
+            if (args[i].equals("-4")) {
+                interleaved = true;
+                continue;
+            }
+            if (args[i].equals("-m") && i + 1 < args.length) {
+                maxCodeLength = parseMaxCodeLength(args[++i]);
+                continue;
+            }
+
+            // the range coder has its own format, which none of these change
+            if (range && (canonical || blocks || interleaved || parallel || contextGroups > 0 || maxCodeLength > 0)) {
+                System.err.println("-r cannot be combined with -c, -m, -b, -4, -p, -1 or -g");
+                return;
+            }
+
+            if (adaptive && args[i].equals("-")) {
+                // stream standard input to standard output
+                try {
+                    in = new BinaryIn();
+                    out = new BinaryOut();
+                    if (range)
+                        RangeModel.compress(in, out);
+                    else
+                        AdaptiveHuffman.compress(in, out);
+                } finally {
+                    in.close();
+                    out.close();
+                }
+                continue;
+            }
+            String outpath = args[i] + (range ? ".hr" : adaptive ? ".ha" : canonical || blocks || interleaved || contextGroups > 0 ? ".hc" : ".hh");
+            out = null;
             try {
                 // check if file exists
                 File file = new File(args[i]);
                 if (!file.exists()) continue;
 
-                // create input stream
-                in = new BinaryIn(args[i]);
-
-                // create output stream
-                out = new BinaryOut(args[i] + ".hh");
+                // create output stream (the input is opened once per pass)
+                out = new BinaryOut(outpath);
 
                 // compress
-                compress();
+                if (adaptive) {
+                    in = new BinaryIn(args[i]);
+                    try {
+                        if (range)
+                            RangeModel.compress(in, out);
+                        else
+                            AdaptiveHuffman.compress(in, out);
+                    } finally {
+                        in.close();
+                    }
+                }
+                else if (range)
+                    RangeModel.compress(args[i], out);
+                else if (contextGroups > 0)
+                    ContextHuffman.compress(args[i], out, contextGroups, maxCodeLength);
+                else if (blocks || interleaved)
+                    HuffmanBlocks.compress(args[i], out,
+                                           interleaved ? CanonicalHuffman.BLOCKS_X4 : CanonicalHuffman.BLOCKS,
+                                           maxCodeLength, Runtime.getRuntime().availableProcessors());
+                else if (parallel)
+                    compressParallel(args[i], canonical);
+                else if (canonical)
+                    compressCanonical(args[i]);
+                else
+                    compress(args[i]);
+            } catch (RuntimeException e) {
+                // do not leave a truncated file behind
+                if (out != null) {
+                    out.close();
+                    out = null;
+                    new File(outpath).delete();
+                }
+                throw e;
             } finally {
-                // close streams
-                if (in != null)
-                    in.close();
+                // close streams (each pass closes its own input)
                 if (out != null)
                     out.close();
             }
@@ -7,7 +7,8 @@
  * 
  * ------------- CLASS INFO -------------
  *  Class: SchubsL
- *  Dependencies: BinaryIn.java BinaryOut.java TST.java Queue.java
+ *  Dependencies: BinaryIn.java BinaryOut.java LzwTable.java BitWriter.java
+ *                LzwEncoder.java LzwBlocks.java LzwLru.java LzwDictionary.java
  *  Modified Version of Files From:   http://algs4.cs.princeton.edu/55compression/
  *   
  *  ------------- CLI -------------
@@ -23,6 +24,39 @@
  *      
  *     To uncompress...
  *     > java -cp target/classes/  Deschubs  src/files/lzwTests/test1.txt.ll
+ *
+ *  Options (given before the files they apply to)
+ *     -w <n>   variable width codes (*.lw): codes start at 9 bits and grow
+ *              with the dictionary up to n bits (9 to 24), e.g. -w 16; the
+ *              dictionary has 2^n entries, so large widths suit large,
+ *              repetitive inputs such as machine logs (-w 24 needs 256 MB to
+ *              compress and 64 MB to expand, outside the Java heap; with a
+ *              small -Xmx also give java -XX:MaxDirectMemorySize=320m)
+ *     -r       (*.lw) once the dictionary is full, start a new one whenever
+ *              the compression ratio drops (like Unix compress); implies
+ *              -w 16 if no width is given
+ *     -l       (*.lw) once the dictionary is full, every new entry replaces
+ *              the least recently used one (see LzwLru), so the dictionary
+ *              follows input that drifts, like rotating logs; instead of -r,
+ *              implies -w 16 if no width is given
+ *     -t <d>   train a preset dictionary for -w n (default 16) from the
+ *              files that follow and write it to the file d; nothing is
+ *              compressed (see LzwDictionary)
+ *              > java -cp target/classes SchubsL -w 12 -t msg.dict samples/*.json
+ *     -d <d>   (*.lw) start from the preset dictionary in the file d, which
+ *              pays off on many small files like the samples it was trained
+ *              on; implies its width if none is given, and Deschubs needs
+ *              the same dictionary
+ *              > java -cp target/classes SchubsL -d msg.dict msgs/*.json
+ *              > java -cp target/classes Deschubs -d msg.dict msgs/1.json.lw
+ *     -b       (*.lw) cut the file into blocks with their own dictionaries,
+ *              compressed and expanded on all cores (see LzwBlocks); implies
+ *              -w 16 if no width is given
+ *
+ *  To Compress a Pipe (the file "-" is standard input to standard output,
+ *  one block, so -b is ignored)
+ *     > cat *.log | java -cp target/classes SchubsL -w 16 - > logs.lw
+ *     > java -cp target/classes Deschubs - lw < logs.lw > logs.txt
  *  
  *  To Test
  *     > mvn test
@@ -41,6 +75,46 @@
  *      the string being the key and the value being hex so that the next time we see this 
  *      specific string (if we do) we can encode the the string using the hex value from 
  *      our table. 
+ *
+ *      The table (LzwTable) stores each entry as (code of its prefix, next
+ *      char) rather than as a string, so each input char costs one hash lookup.
+ *
+ *      The input is read forward once, a buffer at a time: the current match
+ *      is carried from one buffer to the next and a code is written as soon
+ *      as the next char does not extend it. Memory use is the dictionary and
+ *      one buffer, whatever the size of the input, so standard input works
+ *      too. Each read returns what has arrived without waiting for more, and
+ *      the whole bytes written so far are flushed after it, so output keeps
+ *      up with a pipe that pauses.
+ *
+ *      .ll files use 12 bit codes and a 4096 entry dictionary. With -w the
+ *      dictionary has 2^n entries and every code is written with just enough
+ *      bits for the largest code the expander could see at that point, so
+ *      early codes take 9 bits and the width grows by one each time the
+ *      dictionary size passes a power of two. The header's width byte is
+ *      also the dictionary size, so the expander allocates the same table.
+ *
+ *      With -r a full dictionary is not kept for the rest of the file. Every
+ *      CHECK_GAP input bytes the ratio of the last stretch (input bits per
+ *      output bit) is compared with the best stretch since the dictionary
+ *      filled; if it falls below RESET_RATIO of that, the CLEAR code is
+ *      written and both sides start again from the 256 single chars. The
+ *      .lw codes are written by LzwEncoder, which the block layout shares.
+ *
+ *  .lw File
+ *      - (8 bits) maximum code width n (9 to 24), the dictionary has 2^n codes
+ *      - (8 bits) mode flags: RESET (CLEAR codes may follow) or LRU (a full
+ *        dictionary reuses its least recently used codes), else the full
+ *        dictionary is kept, and BLOCKS (the rest of the file is the block
+ *        layout of LzwBlocks, with one code stream like this per block) and
+ *        PRESET (followed by the (int) id of the preset dictionary, whose
+ *        entries are the first codes, before any input and after a CLEAR)
+ *      - the codes, each in min(n, bitsNeeded(next free code - 1)) bits,
+ *        then the EOF code (R); the expander adds its entries one code
+ *        later than the compressor, so it uses bitsNeeded(its next free code)
+ *      - with RESET, code R+1 is CLEAR and the first free code is R+2; the
+ *        code after a CLEAR starts a new dictionary, like the first code
+ *      - 0 bits to pad the last byte
  *  
  *  Trade-Offs
  *      Great for Space
@@ -59,35 +133,118 @@
 import sedgewick.*;
 
 import java.io.File;
+import java.util.Arrays;
 
 public class SchubsL {
     private static final int R = 256;        // number of input chars
     private static final int L = 4096;       // number of codewords = 2^W
     private static final int W = 12;         // codeword width
 
+    // widths allowed with -w
+    public static final int MIN_WIDTH = 9;
+    public static final int MAX_WIDTH = 24;
+    public static final int DEFAULT_WIDTH = 16;
+
+    // .lw mode flags: what happens when the dictionary is full (FREEZE keeps
+    // using it, RESET may clear it, LRU replaces its least recently used
+    // entries), whether the file is in blocks, and whether it starts from a
+    // preset dictionary
+    public static final int FREEZE = 0;
+    public static final int RESET = 1;
+    public static final int BLOCKS = 2;
+    public static final int LRU = 4;
+    public static final int PRESET = 8;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
     private static BinaryIn in;
     private static BinaryOut out;
 
     public static void compress() { 
 
-        if (in.isEmpty()) return;
+        byte[] buf = new byte[BUFFER_SIZE];
+        int n = in.read(buf, 0, BUFFER_SIZE);
+        if (n <= 0) return;
 
-        String input = in.readString();
-        TST<Integer> st = new TST<Integer>();
-        for (int i = 0; i < R; i++)
-            st.put("" + (char) i, i);
+        // single characters are codes 0 to R-1 and are not stored in the table
+        LzwTable st = new LzwTable(L);
         int code = R+1;  // R is codeword for EOF
 
-        while (input.length() > 0) {
-            String s = st.longestPrefixOf(input);  // Find max prefix match s.
-            out.write(st.get(s), W);      // Print s's encoding.
-            int t = s.length();
-            if (t < input.length() && code < L)    // Add s to symbol table.
-                st.put(input.substring(0, t + 1), code++);
-            input = input.substring(t);            // Scan past s in input.
+        BitWriter bits = new BitWriter(out);
+        int s = buf[0] & 0xff;                     // longest match so far
+        int i = 1;
+        while (n > 0) {
+            for (; i < n; i++) {
+                // extend the match s by one char, or write it and start a new one
+                int c = buf[i] & 0xff;
+                int longer = st.get(s, c);
+                if (longer != -1) {
+                    s = longer;
+                    continue;
+                }
+                bits.write(s, W);                  // Print s's encoding.
+                if (code < L)                      // Add s + next char to symbol table.
+                    st.put(s, c, code++);
+                s = c;
+            }
+            bits.flushBytes();                     // all that has arrived so far
+            n = in.read(buf, 0, BUFFER_SIZE);
+            i = 0;
+        }
+        bits.write(s, W);
+        bits.write(R, W);
+        bits.flush();
+    }
+
+    // compress into the .lw format: codes grow from 9 to maxWidth bits, and
+    // with RESET a full dictionary is cleared when the ratio drops
+    public static void compressVariable(int maxWidth, int mode) {
+        compressVariable(maxWidth, mode, null);
+    }
+
+    // same, starting from a preset dictionary (or null)
+    public static void compressVariable(int maxWidth, int mode, LzwDictionary preset) {
+
+        byte[] buf = new byte[BUFFER_SIZE];
+        int n = in.read(buf, 0, BUFFER_SIZE);
+        if (n <= 0) return;
+
+        BitWriter bits = new BitWriter(out);
+        bits.write(maxWidth, 8);
+        if (preset == null) {
+            bits.write(mode, 8);
+        }
+        else {
+            bits.write(mode | PRESET, 8);
+            bits.write(preset.id());
+        }
+
+        LzwEncoder lzw = new LzwEncoder(bits, maxWidth, mode, 1 << maxWidth, preset);
+        while (n > 0) {
+            lzw.encode(buf, 0, n);
+            bits.flushBytes();
+            n = in.read(buf, 0, BUFFER_SIZE);
+        }
+        lzw.finish();
+        bits.flush();
+    }
+
+    // number of bits needed to write x
+    static int bitsNeeded(int x) {
+        return 32 - Integer.numberOfLeadingZeros(x);
+    }
+
+    // code width given with -w, 0 (fixed 12 bit .ll) if it is not usable
+    static int parseWidth(String arg) {
+        try {
+            int bits = Integer.parseInt(arg);
+            if (bits >= MIN_WIDTH && bits <= MAX_WIDTH)
+                return bits;
+        } catch (NumberFormatException e) {
+            // fall through
         }
-        out.write(R, W);
-        out.close();
+        System.out.println("Code width must be between " + MIN_WIDTH + " and " + MAX_WIDTH + ", ignoring " + arg);
+        return 0;
     }
 
     public static void main(String[] args) {
@@ -96,20 +253,96 @@ public class SchubsL {
             return;
         }
 
+        // -w writes variable width codes (.lw) of at most maxWidth bits
+        int maxWidth = 0;
+
+        // -r clears the .lw dictionary when the ratio drops, -l replaces its
+        // least recently used entries
+        int mode = FREEZE;
+
+        // -b compresses independent blocks on all cores
+        boolean blocks = false;
+
+        // -d starts every .lw file from a trained dictionary
+        LzwDictionary preset = null;
+
         for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-w") && i + 1 < args.length) {
+                maxWidth = parseWidth(args[++i]);
+                continue;
+            }
+            if (args[i].equals("-r")) {
+                mode = RESET;
+                if (maxWidth == 0) maxWidth = DEFAULT_WIDTH;
+                continue;
+            }
+            if (args[i].equals("-l")) {
+                mode = LRU;
+                if (maxWidth == 0) maxWidth = DEFAULT_WIDTH;
+                continue;
+            }
+            if (args[i].equals("-t") && i + 1 < args.length) {
+                // train a dictionary from the rest of the files, compress nothing
+                String dictionary = args[++i];
+                LzwDictionary.train(Arrays.copyOfRange(args, i + 1, args.length),
+                                    maxWidth > 0 ? maxWidth : DEFAULT_WIDTH).write(dictionary);
+                return;
+            }
+            if (args[i].equals("-d") && i + 1 < args.length) {
+                preset = LzwDictionary.read(args[++i]);
+                if (maxWidth == 0) maxWidth = preset.width();
+                continue;
+            }
+            if (args[i].equals("-b")) {
+                blocks = true;
+                if (maxWidth == 0) maxWidth = DEFAULT_WIDTH;
+                continue;
+            }
+            if (args[i].equals("-")) {
+                // stream standard input to standard output
+                try {
+                    in = new BinaryIn();
+                    out = new BinaryOut();
+                    if (maxWidth > 0)
+                        compressVariable(maxWidth, mode, preset);
+                    else
+                        compress();
+                } finally {
+                    in.close();
+                    out.close();
+                }
+                continue;
+            }
+            String outpath = args[i] + (maxWidth > 0 ? ".lw" : ".ll");
+            in = null;
+            out = null;
             try {
     
                 File file = new File(args[i]);
                 if (!file.exists()) continue;
     
-                // create input stream
-                in = new BinaryIn(args[i]);
-    
                 // create output stream
-                out = new BinaryOut(args[i] + ".ll");
+                out = new BinaryOut(outpath);
     
-                // compress
-                compress();
+                // compress (the block layout reads the file itself)
+                if (blocks) {
+                    LzwBlocks.compress(args[i], out, maxWidth, mode, preset,
+                                       Runtime.getRuntime().availableProcessors());
+                    continue;
+                }
+                in = new BinaryIn(args[i]);
+                if (maxWidth > 0)
+                    compressVariable(maxWidth, mode, preset);
+                else
+                    compress();
+            } catch (RuntimeException e) {
+                // do not leave a truncated file behind
+                if (out != null) {
+                    out.close();
+                    out = null;
+                    new File(outpath).delete();
+                }
+                throw e;
             } finally {
                 // close streams
                 if (in != null)
@@ -0,0 +1,246 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *  Assignment: Final Compression Project
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: SchubsZ
+ *  Dependencies: BinaryIn.java BinaryOut.java BitWriter.java LzMatchFinder.java
+ *                LzParser.java LzHuffman.java
+ *
+ *  ------------- CLI -------------
+ *  Note: "/" or "\" may vary depending on OS
+ *
+ *  To Compress a File
+ *      > mvn compile
+ *      > java -cp target/classes SchubsZ <filename>
+ *
+ *  Example
+ *     This will compress all files in lzwTests into their own *.txt.lz files
+ *     > java -cp target/classes/ SchubsZ src/files/lzwTests/*.txt
+ *
+ *     To uncompress...
+ *     > java -cp target/classes/ Deschubs src/files/lzwTests/test1.txt.lz
+ *
+ *  Options (given before the files they apply to)
+ *     -w <n>   window of 2^n bytes (16 to 20, 64 KB to 1 MB, default 16):
+ *              matches reach further back, but every distance takes n bits
+ *     -c <n>   compare at most n earlier positions per byte (1 to 4096,
+ *              default 32): more finds longer matches, but compresses slower;
+ *              expanding is just as fast either way
+ *     -l <n>   parse level (see LzParser): 1 greedy (default), 2 lazy, 3
+ *              optimal; higher levels compress smaller and slower, and
+ *              expand just as fast
+ *     -h       Huffman code the literals and matches (*.lh), like gzip: a
+ *              code per block of LzHuffman.BLOCK_TOKENS literals and matches,
+ *              each block written as soon as it is coded (see LzHuffman)
+ *
+ *  To Compress a Pipe (the file "-" is standard input to standard output)
+ *     > cat *.log | java -cp target/classes SchubsZ - > logs.lz
+ *     > java -cp target/classes Deschubs - lz < logs.lz > logs.txt
+ *     > cat *.log | java -cp target/classes SchubsZ -h -w 20 - | java -cp target/classes Deschubs - lh
+ *
+ *  To Test
+ *     > mvn test
+ *     Note: tests can be found in src/tests/java
+ *
+ * ------------- DESIGN -------------
+ *  Overview
+ *      LZSS, the LZ77 variant of Storer and Szymanski: the input becomes a
+ *      sequence of literals (a byte) and matches (repeat "length" bytes from
+ *      "distance" bytes back), where a match is only written if it is shorter
+ *      than the literals it replaces. The expander keeps the last window of
+ *      output and copies the matches from it, with no dictionary to rebuild
+ *      like LZW, so expanding is mostly System.arraycopy.
+ *
+ *  Process
+ *      For each position, LzMatchFinder walks a hash chain of earlier positions
+ *      with the same next 3 bytes and returns the longest match. LzParser
+ *      decides which matches are written: by default (greedy) a match that
+ *      takes fewer bits than its bytes is written and the input moves past
+ *      it; otherwise the byte is written as a literal. Every position passed,
+ *      in a match or not, goes into the chains.
+ *
+ *      With -h the same parse goes to LzHuffman instead, which Huffman codes
+ *      it block by block. A match takes fewer bits there, so every match of
+ *      MIN_MATCH bytes or more is used, except short ones from far back (see
+ *      LzParser).
+ *
+ *  .lz File
+ *      - (8 bits) window bits n (16 to 20)
+ *      - tokens, each
+ *          - 0 bit, then (8 bits) a literal byte, or
+ *          - 1 bit, then (n bits) distance (1 to 2^n - 1) and (8 bits) length
+ *            minus MIN_MATCH (3 to 258 bytes)
+ *      - 1 bit and a distance of 0, the end of the file
+ *      - 0 bits to pad the last byte
+ *
+ *  .lh File
+ *      - (8 bits) window bits n (16 to 20)
+ *      - blocks, the last one marked (see LzHuffman)
+ *      - 0 bits to pad the last byte
+ *
+ *  Trade-Offs
+ *      The .lz fields have fixed widths, so the format is simple and fast to
+ *      read, but a common byte costs as much as a rare one; .lh fixes that for
+ *      a table lookup per symbol when expanding.
+ *      Greedy parsing takes the longest match at each position even when a
+ *      match one byte later would be longer; -l 2 and -l 3 look further, at
+ *      the cost of more searches.
+ */
+
+import sedgewick.*;
+
+import java.io.File;
+
+public class SchubsZ {
+
+    // window sizes allowed with -w
+    public static final int MIN_WINDOW_BITS = 16;
+    public static final int MAX_WINDOW_BITS = 20;
+    public static final int DEFAULT_WINDOW_BITS = 16;
+
+    // hash chain candidates compared per position with -c
+    public static final int MAX_DEPTH = 4096;
+    public static final int DEFAULT_DEPTH = 32;
+
+    private static final int R = 256;
+    private static final int LENGTH_BITS = 8;
+
+    private static BinaryIn in;
+    private static BinaryOut out;
+
+    // compress "in" to "out" in the .lz format, or .lh if huffman is set,
+    // parsing at the given LzParser level
+    public static void compress(int windowBits, int depth, boolean huffman, int level) {
+
+        LzMatchFinder matches = new LzMatchFinder(in, windowBits, depth);
+        if (matches.lookahead() == 0) return;
+
+        BitWriter bits = new BitWriter(out);
+        bits.write(windowBits, 8);
+
+        LzHuffman blocks = huffman ? new LzHuffman(bits, windowBits) : null;
+        LzParser parser = new LzParser(matches, level, windowBits, blocks);
+        int[] tokens = new int[LzParser.OPT_CHUNK];
+        int matchFlag = 1 << (windowBits + LENGTH_BITS);
+        int n;
+        while ((n = parser.parse(tokens)) > 0) {
+            for (int i = 0; i < n; i++) {
+                int token = tokens[i];
+                if (blocks != null) {
+                    if (token < R) blocks.literal(token);
+                    else           blocks.match(token >>> 20, token & 0xfffff);
+                }
+                else if (token < R) {
+                    bits.write(token, 9);                           // 0, then the byte
+                }
+                else {
+                    // 1, distance, length - MIN_MATCH in one write (at most 29 bits)
+                    bits.write(matchFlag | (token & 0xfffff) << LENGTH_BITS
+                               | ((token >>> 20) - LzMatchFinder.MIN_MATCH), 1 + windowBits + LENGTH_BITS);
+                }
+            }
+        }
+        if (blocks != null) {
+            blocks.finish();
+        }
+        else {
+            bits.write(1, 1);
+            bits.write(0, windowBits);
+        }
+        bits.flush();
+    }
+
+    // an int option between min and max, or "fallback" (with a message) if it is not one
+    private static int parseOption(String arg, int min, int max, int fallback, String name) {
+        try {
+            int n = Integer.parseInt(arg);
+            if (n >= min && n <= max)
+                return n;
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        System.out.println(name + " must be between " + min + " and " + max + ", ignoring " + arg);
+        return fallback;
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Please enter the correct number of arguments");
+            return;
+        }
+
+        // -w sets the window to 2^windowBits bytes
+        int windowBits = DEFAULT_WINDOW_BITS;
+
+        // -c sets how many earlier positions each search compares
+        int depth = DEFAULT_DEPTH;
+
+        // -h Huffman codes the output (.lh)
+        boolean huffman = false;
+
+        // -l picks greedy, lazy or optimal parsing
+        int level = LzParser.GREEDY;
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-w") && i + 1 < args.length) {
+                windowBits = parseOption(args[++i], MIN_WINDOW_BITS, MAX_WINDOW_BITS, windowBits, "Window bits");
+                continue;
+            }
+            if (args[i].equals("-c") && i + 1 < args.length) {
+                depth = parseOption(args[++i], 1, MAX_DEPTH, depth, "Search depth");
+                continue;
+            }
+            if (args[i].equals("-l") && i + 1 < args.length) {
+                level = parseOption(args[++i], LzParser.GREEDY, LzParser.OPTIMAL, level, "Level");
+                continue;
+            }
+            if (args[i].equals("-h")) {
+                huffman = true;
+                continue;
+            }
+            if (args[i].equals("-")) {
+                // stream standard input to standard output
+                try {
+                    in = new BinaryIn();
+                    out = new BinaryOut();
+                    compress(windowBits, depth, huffman, level);
+                } finally {
+                    in.close();
+                    out.close();
+                }
+                continue;
+            }
+            String outpath = args[i] + (huffman ? ".lh" : ".lz");
+            in = null;
+            out = null;
+            try {
+
+                File file = new File(args[i]);
+                if (!file.exists()) continue;
+
+                // create output stream
+                in = new BinaryIn(args[i]);
+                out = new BinaryOut(outpath);
+                compress(windowBits, depth, huffman, level);
+            } catch (RuntimeException e) {
+                // do not leave a truncated file behind
+                if (out != null) {
+                    out.close();
+                    out = null;
+                    new File(outpath).delete();
+                }
+                throw e;
+            } finally {
+                // close streams
+                if (in != null)
+                    in.close();
+                if (out != null)
+                    out.close();
+            }
+        }
+    }
+}
@@ -44,7 +44,7 @@ public final class BinaryIn {
 
     private BufferedInputStream in;      // the input stream
     private int buffer;                  // one character buffer
-    private int N;                       // number of bits left in buffer
+    private int N;                       // number of bits left in buffer (0: not read yet)
 
    /**
      * Create a binary input stream from standard input.
@@ -139,6 +139,9 @@ public final class BinaryIn {
      * @return true if and only if the binary input stream is empty
      */
     public boolean isEmpty() {
+        // a bulk read leaves nothing buffered, so that it never waits for
+        // input it was not asked for
+        if (N == 0) fillBuffer();
         return buffer == EOF;
     }
 
@@ -320,6 +323,39 @@ public final class BinaryIn {
         return x;
     }
 
+   /**
+     * Read up to <tt>len</tt> bytes from the binary input stream into <tt>b</tt>.
+     * This bypasses the one-bit-at-a-time machinery, so it is only legal
+     * when the stream is byte-aligned. It blocks until at least one byte is
+     * available, then returns only what can be read without blocking again,
+     * so on a pipe that pauses it returns what has arrived so far.
+     * @param b the buffer to read into
+     * @param off the start offset in <tt>b</tt>
+     * @param len the maximum number of bytes to read
+     * @return the number of bytes read, or -1 if the input stream is empty
+     * @throws RuntimeException if the input stream is not byte-aligned
+     */
+    public int read(byte[] b, int off, int len) {
+        if (isEmpty()) return -1;
+        if (N != 8) throw new RuntimeException("Bulk read from a stream that is not byte-aligned");
+        if (len == 0) return 0;
+
+        // hand out the byte we already buffered, then read straight from the
+        // stream what is there; nothing is read ahead (see isEmpty)
+        b[off] = (byte) buffer;
+        int n = 1;
+        try {
+            int available = Math.min(len - 1, in.available());
+            if (available > 0) {
+                int r = in.read(b, off + 1, available);
+                if (r > 0) n += r;
+            }
+        }
+        catch (IOException e) { System.err.println("EOF"); }
+        N = 0;
+        return n;
+    }
+
     public void close() {
         try { in.close(); }
         catch (IOException e) { e.printStackTrace(); }
@@ -251,6 +251,24 @@ public final class BinaryOut {
         }
     }
 
+   /**
+     * Write <tt>len</tt> bytes from <tt>b</tt> to the binary output stream.
+     * When the stream is byte-aligned the bytes go straight to the underlying
+     * stream; otherwise they are written one byte at a time.
+     * @param b the bytes to write
+     * @param off the start offset in <tt>b</tt>
+     * @param len the number of bytes to write
+     */
+    public void write(byte[] b, int off, int len) {
+        if (N == 0) {
+            try { out.write(b, off, len); }
+            catch (IOException e) { e.printStackTrace(); }
+            return;
+        }
+        for (int i = off; i < off + len; i++)
+            writeByte(b[i] & 0xff);
+    }
+
    /**
      * Write the string of 8-bit characters to the binary output stream.
      * @param s the <tt>String</tt> to write.
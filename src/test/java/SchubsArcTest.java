@@ -33,6 +33,7 @@
  *      Our test harness covers
  *          - single files
  *          - multiple files
+ *          - range coded archives (.zr), which refuse -m
  *  *
  *  NOTE: if you want to remove compressed, then uncomment the last 
  *  or add a cleanTestDir("zh") in the bottom of tests
@@ -41,6 +42,7 @@
 import sedgewick.*;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 import java.io.File;
@@ -176,4 +178,73 @@ public class SchubsArcTest {
         }
         // cleanTestDir("zh");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void limitedCodeLengthTest() throws IOException {
+
+        String folder = "src" + File.separator + "files" + File.separator + 
+                        "huffmanArchiveTests" + File.separator + "folder1";
+        String[] archiveName = { folder + File.separator + "archive.zh" };
+        cleanTestDir("zh");
+
+        // files holds all the files in folder1
+        File dir = new File(folder);
+        String[] files = dir.list();
+        for (int i = 0; i < files.length; i++)
+            files[i] = folder + File.separator + files[i];
+
+        Map<String, String> originalContents = new HashMap<String, String>();
+        for (String filepath : files) 
+            originalContents.put(filepath, getFileContents(filepath));
+
+        // compress with codes of at most 11 bits
+        String[] options = { "-m", "11" };
+        SchubsArc.main(ArrayUtils.addAll(options, ArrayUtils.addAll(archiveName, files)));
+
+        for (String fileTobeDeleted : files)
+            deleteFile(fileTobeDeleted);
+
+        Deschubs.main(archiveName);
+
+        for (String filepath : files)
+            assertEquals(getFileContents(filepath), originalContents.get(filepath));
+    }
+
+    @Test
+    public void rangeArchiveTest() throws IOException {
+
+        String folder = "src" + File.separator + "files" + File.separator + 
+                        "huffmanArchiveTests" + File.separator + "folder2";
+        String archive = folder + File.separator + "archive.zr";
+
+        // files holds all the files in folder2 but the archives of other tests
+        File dir = new File(folder);
+        String[] files = new String[0];
+        for (String name : dir.list())
+            if (!name.startsWith("archive."))
+                files = ArrayUtils.add(files, folder + File.separator + name);
+
+        Map<String, String> originalContents = new HashMap<String, String>();
+        for (String filepath : files) 
+            originalContents.put(filepath, getFileContents(filepath));
+
+        // compress with the range coder instead of Huffman codes
+        SchubsArc.main(ArrayUtils.addAll(new String[] { archive }, files));
+
+        for (String fileTobeDeleted : files)
+            deleteFile(fileTobeDeleted);
+
+        Deschubs.main(new String[] { archive });
+
+        for (String filepath : files)
+            assertEquals(getFileContents(filepath), originalContents.get(filepath));
+
+        // the other tests archive every file in the folder
+        deleteFile(archive);
+
+        // -m limits Huffman codes, which a .zr archive does not have
+        SchubsArc.main(ArrayUtils.addAll(new String[] { "-m", "11", archive }, files));
+        assertTrue(!new File(archive).exists());
+        assertTrue(!new File(folder + File.separator + "archive").exists());
+    }
+}
@@ -0,0 +1,181 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: SchubsBTest
+ *  Dependencies: SchubsB.java Deschubs.java BwtBlocks.java SaIs.java
+ *                SchubsHelpers.java
+ *
+ *  ------------- CLI -------------
+ *  Note: "/" or "\" may vary depending on OS
+ *
+ *  To Test
+ *      > mvn test
+ *      Note: test files can be found in src/files/
+ *
+ * ------------- DESIGN -------------
+ *  Overview/Process
+ *      Each test writes its input to a temporary file, compresses it with
+ *      SchubsB, deletes it, expands the .bw file with Deschubs and compares
+ *      the result with the original bytes.
+ *
+ *  Tests
+ *      Our test harness covers
+ *          - the text files in src/files, which must come out smaller than
+ *            with LZ77 + Huffman (SchubsZ -h)
+ *          - suffix arrays against a plain sort, on small alphabets and runs
+ *          - several blocks, whole and one block at a time
+ *          - no output left behind for a file that changes while it is read
+ *          - empty and one byte files, one long run, every byte value and
+ *            bytes with no context to sort
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import org.junit.Test;
+
+
+public class SchubsBTest {
+
+    // -------------------------- HELPER FUNCTIONS -------------------------- //
+
+    // compress data, expand it again and check it came back; returns the
+    // compressed size
+    private static long roundTrip(byte[] data) throws IOException {
+        return SchubsHelpers.roundTrip(data, SchubsB.class, "bw");
+    }
+
+    // the suffix array of data[0..n) by comparing suffixes
+    private static int[] plainSort(final byte[] data, final int n) {
+        Integer[] suffixes = new Integer[n + 1];
+        for (int i = 0; i <= n; i++)
+            suffixes[i] = i;
+        Arrays.sort(suffixes, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                int i = a, j = b;
+                while (i < n && j < n && data[i] == data[j]) {
+                    i++;
+                    j++;
+                }
+                if (i == n || j == n) return (n - i) - (n - j);
+                return (data[i] & 0xff) - (data[j] & 0xff);
+            }
+        });
+        int[] sa = new int[n + 1];
+        for (int i = 0; i <= n; i++)
+            sa[i] = suffixes[i];
+        return sa;
+    }
+
+    // -------------------------- TESTS -------------------------- //
+
+    @Test
+    public void textFileTest() throws IOException {
+        Path testDir = Paths.get("src", "files", "huffmanArchiveTests");
+        String[] names = { "folder1/aChristmasCarol.txt", "folder1/aplhabet.txt", "folder2/javaCode.txt",
+                           "folder2/news.txt", "folder3/shortStory.txt", "folder4/sherlockHolmes4.txt" };
+        for (String name : names) {
+            byte[] data = Files.readAllBytes(testDir.resolve(name));
+            long size = roundTrip(data);
+            if (data.length > 3000) assertTrue(size < SchubsHelpers.compressedSize(data, SchubsZ.class, "lh", "-h", "-l", "3"));
+        }
+    }
+
+    @Test
+    public void suffixArrayTest() {
+        Random random = new Random(7);
+        for (int alphabet : new int[] { 1, 2, 3, 4, 256 }) {
+            for (int n = 0; n < 300; n += 1 + n / 8) {
+                byte[] data = new byte[n];
+                for (int i = 0; i < n; i++)
+                    data[i] = (byte) ('a' + random.nextInt(alphabet));
+                assertArrayEquals(plainSort(data, n), SaIs.sort(data, n));
+            }
+        }
+
+        // repeats inside repeats, so the recursion goes several levels deep
+        byte[] fib = new byte[1 << 12];
+        byte[] a = { 'a' }, b = { 'a', 'b' };
+        for (int filled = 0; filled < fib.length; ) {
+            byte[] c = Arrays.copyOf(b, b.length + a.length);
+            System.arraycopy(a, 0, c, b.length, a.length);
+            a = b;
+            b = c;
+            filled = Math.min(fib.length, b.length);
+            System.arraycopy(b, 0, fib, 0, filled);
+        }
+        assertArrayEquals(plainSort(fib, fib.length), SaIs.sort(fib, fib.length));
+    }
+
+    @Test
+    public void blockTest() throws IOException {
+
+        // two full blocks and a short one
+        byte[] original = SchubsHelpers.words(2 * BwtBlocks.BLOCK_SIZE + 12345);
+        assertTrue(roundTrip(original) < original.length / 3);
+
+        String filepath = SchubsHelpers.writeFile(original);
+        SchubsB.main(new String[] { filepath });
+        assertEquals(3, BwtBlocks.blockCount(filepath + ".bw"));
+        for (int i = 0; i < 3; i++) {
+            int from = i * BwtBlocks.BLOCK_SIZE;
+            int to = Math.min(original.length, from + BwtBlocks.BLOCK_SIZE);
+            assertArrayEquals(Arrays.copyOfRange(original, from, to), BwtBlocks.readBlock(filepath + ".bw", i));
+        }
+        new File(filepath + ".bw").delete();
+        new File(filepath).delete();
+    }
+
+    @Test
+    public void changedFileTest() throws IOException {
+
+        // files that read shorter and longer than their reported length: the
+        // blocks do not add up, and the output is deleted rather than truncated
+        for (String target : new String[] { "/sys/devices/system/cpu/online", "/proc/version" }) {
+            String filepath = SchubsHelpers.linkTo(target);
+            try {
+                SchubsB.main(new String[] { filepath });
+                fail("compressed a file that changed");
+            } catch (RuntimeException e) {
+                assertTrue(e.getMessage().contains("changed while it was being compressed"));
+            }
+            assertTrue(!new File(filepath + ".bw").exists());
+        }
+    }
+
+    @Test
+    public void edgeCaseTest() throws IOException {
+        roundTrip(new byte[0]);
+        roundTrip(new byte[] { 42 });
+        roundTrip("banana".getBytes());
+
+        // one run: every move-to-front position is 0
+        byte[] run = new byte[BwtBlocks.BLOCK_SIZE];
+        Arrays.fill(run, (byte) 'x');
+        assertTrue(roundTrip(run) < 1000);
+
+        byte[] every = new byte[3 * 256];
+        for (int i = 0; i < every.length; i++)
+            every[i] = (byte) (i * 7);
+        roundTrip(every);
+
+        byte[] noise = new byte[1 << 18];
+        new Random(7).nextBytes(noise);
+        assertTrue(roundTrip(noise) < noise.length + noise.length / 50);
+    }
+}
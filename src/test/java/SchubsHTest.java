@@ -31,6 +31,13 @@
  *      Testing covers
  *          - single files
  *          - multiple files
+ *          - the other layouts (-c, -b, -4, -1, -a, -p) and the range coder
+ *            (-r), which must beat the trie on skewed input
+ *          - a file that shrinks or grows while -b compresses it leaves no
+ *            output, and a second pass that finds bytes the first did not
+ *            count (.hh, .hc, -1, -r) is refused
+ *          - -a and -a -r on a pipe, which must write what they have whenever
+ *            the pipe pauses, and -r refusing the Huffman layout options
  *
  *  NOTE: if you want to remove compressed files, then uncomment the last 
  *  cleanTestDir("hh") in the last test
@@ -38,14 +45,24 @@
 
 import sedgewick.*;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Random;
 
+import org.apache.commons.lang3.ArrayUtils;
 import org.junit.Test;
 
 
@@ -107,6 +124,30 @@ public class SchubsHTest {
         return false;
     }
 
+    // writes a file where symbol i appears fib(i) times, which gives the
+    // Huffman trie one extra level per symbol (very long codes)
+    public String writeSkewedFile() throws IOException {
+        File file = File.createTempFile("skewed", ".txt");
+        file.deleteOnExit();
+        FileOutputStream out = null;
+
+        try {
+            out = new FileOutputStream(file);
+            int a = 1, b = 1;
+            for (int i = 0; i < 20; i++) {
+                for (int j = 0; j < a; j++)
+                    out.write('a' + i);
+                int c = a + b;
+                a = b;
+                b = c;
+            }
+        } finally {
+            if (out != null)
+                out.close();
+        }
+        return file.getPath();
+    }
+
     // -------------------------- TESTS -------------------------- //
 
     @Test
@@ -188,4 +229,540 @@ public class SchubsHTest {
         }
         //cleanTestDir("hh");
     }
+
+    @Test
+    public void longCodeTest() throws IOException {
+
+        // codes up to 19 bits deep need a second level of decoding table
+        String filepath = writeSkewedFile();
+        String original = getFileContents(filepath);
+
+        SchubsH.main(new String[] { filepath });
+        deleteFile(filepath);
+        Deschubs.main(new String[] { filepath + ".hh" });
+        deleteFile(filepath + ".hh");
+
+        assertEquals(getFileContents(filepath), original);
+        deleteFile(filepath);
+    }
+
+    @Test
+    public void canonicalFileTest() throws IOException {
+
+        // removes all ".hc" files from huffmanTests directory
+        cleanTestDir("hc");
+
+        Map<String, String> originalContents = new HashMap<String, String>();
+        String testDirPath =  "src" + File.separator + "files" + File.separator + "huffmanTests";
+
+        File folder = new File(testDirPath);
+        String[] files = folder.list();
+
+        for (String relativeFilepath : files) {
+
+            String filepath = testDirPath + File.separator + relativeFilepath;
+            if (!filepath.endsWith(".txt"))
+                continue;
+
+            // store original file contents
+            originalContents.put(filepath, getFileContents(filepath));
+
+            // compress file with the trie and with canonical codes
+            SchubsH.main(new String[] { filepath });
+            SchubsH.main(new String[] { "-c", filepath });
+
+            // the code length header is smaller than the trie
+            assertTrue(new File(filepath + ".hc").length() <= new File(filepath + ".hh").length());
+
+            // delete original file
+            deleteFile(filepath);
+
+            // decompress file
+            Deschubs.main(new String[] { filepath + ".hc" });
+
+            // compare orignal contents to the contents of the decompressed file
+            assertEquals(getFileContents(filepath), originalContents.get(filepath));
+        }
+
+        // keep the directory to .txt and .hh files for the other tests
+        cleanTestDir("hc");
+    }
+
+    @Test
+    public void canonicalLongCodeTest() throws IOException {
+
+        // codes longer than the lookup table use the first-code/offset walk
+        String filepath = writeSkewedFile();
+        String original = getFileContents(filepath);
+
+        SchubsH.main(new String[] { "-c", filepath });
+        deleteFile(filepath);
+        Deschubs.main(new String[] { filepath + ".hc" });
+        deleteFile(filepath + ".hc");
+
+        assertEquals(getFileContents(filepath), original);
+        deleteFile(filepath);
+    }
+
+    @Test
+    public void limitedCodeLengthTest() throws IOException {
+
+        // the skewed file needs 19 bit codes without a limit
+        String filepath = writeSkewedFile();
+        String original = getFileContents(filepath);
+
+        // package-merge keeps every code within the limit and the code complete
+        int[] freq = new int[256];
+        for (int i = 0; i < original.length(); i++)
+            freq[original.charAt(i)]++;
+        int[] length = HuffmanLengths.packageMerge(freq, 11);
+        double kraft = 0;
+        for (int s = 0; s < 256; s++) {
+            assertTrue(length[s] <= 11);
+            if (length[s] > 0)
+                kraft += Math.pow(2, -length[s]);
+        }
+        assertEquals(1.0, kraft, 1e-12);
+
+        // round trip both formats with the limit
+        SchubsH.main(new String[] { "-m", "11", filepath });
+        SchubsH.main(new String[] { "-m", "11", "-c", filepath });
+        deleteFile(filepath);
+        Deschubs.main(new String[] { filepath + ".hh" });
+        assertEquals(getFileContents(filepath), original);
+
+        deleteFile(filepath);
+        Deschubs.main(new String[] { filepath + ".hc" });
+        assertEquals(getFileContents(filepath), original);
+
+        deleteFile(filepath + ".hh");
+        deleteFile(filepath + ".hc");
+        deleteFile(filepath);
+    }
+
+    @Test
+    public void blockFileTest() throws IOException {
+
+        // removes all ".hc" files from huffmanTests directory
+        cleanTestDir("hc");
+
+        Map<String, String> originalContents = new HashMap<String, String>();
+        String testDirPath =  "src" + File.separator + "files" + File.separator + "huffmanTests";
+
+        File folder = new File(testDirPath);
+        String[] files = folder.list();
+
+        for (String relativeFilepath : files) {
+
+            String filepath = testDirPath + File.separator + relativeFilepath;
+            if (!filepath.endsWith(".txt"))
+                continue;
+
+            originalContents.put(filepath, getFileContents(filepath));
+
+            // compress file into the block layout
+            SchubsH.main(new String[] { "-b", filepath });
+            deleteFile(filepath);
+            Deschubs.main(new String[] { filepath + ".hc" });
+
+            assertEquals(getFileContents(filepath), originalContents.get(filepath));
+        }
+
+        cleanTestDir("hc");
+    }
+
+    @Test
+    public void blockRandomAccessTest() throws IOException {
+
+        // two and a half blocks, each block with a different alphabet
+        File file = File.createTempFile("blocks", ".txt");
+        file.deleteOnExit();
+        String filepath = file.getPath();
+        byte[] original = new byte[5 * HuffmanBlocks.BLOCK_SIZE / 2];
+        for (int i = 0; i < original.length; i++)
+            original[i] = (byte) ('a' + (i / HuffmanBlocks.BLOCK_SIZE) * 8 + (i * 7 % 13) % 8);
+        Files.write(Paths.get(filepath), original);
+
+        SchubsH.main(new String[] { "-b", filepath });
+        assertEquals(3, HuffmanBlocks.blockCount(filepath + ".hc"));
+
+        // any block can be decoded on its own
+        for (int i = 2; i >= 0; i--) {
+            int from = i * HuffmanBlocks.BLOCK_SIZE;
+            int to = Math.min(original.length, from + HuffmanBlocks.BLOCK_SIZE);
+            assertArrayEquals(Arrays.copyOfRange(original, from, to), HuffmanBlocks.readBlock(filepath + ".hc", i));
+        }
+
+        // and the whole file expands in parallel
+        deleteFile(filepath);
+        Deschubs.main(new String[] { filepath + ".hc" });
+        assertArrayEquals(original, Files.readAllBytes(Paths.get(filepath)));
+
+        deleteFile(filepath + ".hc");
+        deleteFile(filepath);
+    }
+
+    @Test
+    public void interleavedFileTest() throws IOException {
+
+        // removes all ".hc" files from huffmanTests directory
+        cleanTestDir("hc");
+
+        String testDirPath =  "src" + File.separator + "files" + File.separator + "huffmanTests";
+        for (String relativeFilepath : new File(testDirPath).list()) {
+
+            String filepath = testDirPath + File.separator + relativeFilepath;
+            if (!filepath.endsWith(".txt"))
+                continue;
+
+            String original = getFileContents(filepath);
+            SchubsH.main(new String[] { "-4", filepath });
+            deleteFile(filepath);
+            Deschubs.main(new String[] { filepath + ".hc" });
+            assertEquals(original, getFileContents(filepath));
+        }
+        cleanTestDir("hc");
+
+        // a block of one symbol, then a block whose length is not a multiple of 4
+        File file = File.createTempFile("interleaved", ".txt");
+        file.deleteOnExit();
+        String filepath = file.getPath();
+        byte[] original = new byte[HuffmanBlocks.BLOCK_SIZE + 4099];
+        for (int i = HuffmanBlocks.BLOCK_SIZE; i < original.length; i++)
+            original[i] = (byte) ('a' + (i * 7 % 13));
+        Files.write(Paths.get(filepath), original);
+
+        SchubsH.main(new String[] { "-4", filepath });
+        int from = HuffmanBlocks.BLOCK_SIZE;
+        assertArrayEquals(Arrays.copyOfRange(original, from, original.length), HuffmanBlocks.readBlock(filepath + ".hc", 1));
+
+        deleteFile(filepath);
+        Deschubs.main(new String[] { filepath + ".hc" });
+        assertArrayEquals(original, Files.readAllBytes(Paths.get(filepath)));
+
+        deleteFile(filepath + ".hc");
+        deleteFile(filepath);
+    }
+
+    @Test
+    public void contextFileTest() throws IOException {
+
+        // removes all ".hc" files from huffmanTests directory
+        cleanTestDir("hc");
+
+        String testDirPath =  "src" + File.separator + "files" + File.separator + "huffmanTests";
+        for (String relativeFilepath : new File(testDirPath).list()) {
+
+            String filepath = testDirPath + File.separator + relativeFilepath;
+            if (!filepath.endsWith(".txt"))
+                continue;
+
+            String original = getFileContents(filepath);
+            for (String[] options : new String[][] { { "-1" }, { "-g", "4" }, { "-g", "1" } }) {
+                SchubsH.main(ArrayUtils.add(options, filepath));
+                deleteFile(filepath);
+                Deschubs.main(new String[] { filepath + ".hc" });
+                assertEquals(original, getFileContents(filepath));
+            }
+        }
+        cleanTestDir("hc");
+
+        // each byte depends on the one before it, which order-0 cannot see
+        File file = File.createTempFile("context", ".txt");
+        file.deleteOnExit();
+        String filepath = file.getPath();
+        byte[] original = new byte[1 << 18];
+        for (int i = 1; i < original.length; i++)
+            original[i] = (byte) ('a' + ((original[i - 1] - 'a') * 5 + (i % 7 == 0 ? i % 3 : 1)) % 26);
+        Files.write(Paths.get(filepath), original);
+
+        SchubsH.main(new String[] { "-c", filepath });
+        long order0 = new File(filepath + ".hc").length();
+        SchubsH.main(new String[] { "-1", filepath });
+        assertTrue(new File(filepath + ".hc").length() < order0 / 2);
+
+        deleteFile(filepath);
+        Deschubs.main(new String[] { filepath + ".hc" });
+        assertArrayEquals(original, Files.readAllBytes(Paths.get(filepath)));
+
+        deleteFile(filepath + ".hc");
+        deleteFile(filepath);
+    }
+
+    @Test
+    public void adaptiveFileTest() throws IOException {
+
+        // removes all ".ha" files from huffmanTests directory
+        cleanTestDir("ha");
+
+        String testDirPath =  "src" + File.separator + "files" + File.separator + "huffmanTests";
+        for (String relativeFilepath : new File(testDirPath).list()) {
+
+            String filepath = testDirPath + File.separator + relativeFilepath;
+            if (!filepath.endsWith(".txt"))
+                continue;
+
+            String original = getFileContents(filepath);
+            SchubsH.main(new String[] { "-a", filepath });
+            deleteFile(filepath);
+            Deschubs.main(new String[] { filepath + ".ha" });
+            assertEquals(original, getFileContents(filepath));
+        }
+        cleanTestDir("ha");
+
+        // a small alphabet, then 251 byte values: the tree has to keep adapting
+        File file = File.createTempFile("adaptive", ".txt");
+        file.deleteOnExit();
+        String filepath = file.getPath();
+        byte[] original = new byte[1 << 18];
+        for (int i = 0; i < original.length; i++)
+            original[i] = (byte) (i < original.length / 2 ? 'a' + i * 7 % 13 : i * 31 % 251);
+        Files.write(Paths.get(filepath), original);
+
+        SchubsH.main(new String[] { "-a", filepath });
+        deleteFile(filepath);
+        Deschubs.main(new String[] { filepath + ".ha" });
+        assertArrayEquals(original, Files.readAllBytes(Paths.get(filepath)));
+
+        deleteFile(filepath + ".ha");
+        deleteFile(filepath);
+    }
+
+    @Test
+    public void changedFileTest() throws IOException {
+
+        // a file shorter than its reported length: the blocks do not add up,
+        // and the output is deleted rather than left truncated
+        String filepath = SchubsHelpers.linkTo("/sys/devices/system/cpu/online");
+        for (String option : new String[] { "-b", "-4" }) {
+            try {
+                SchubsH.main(new String[] { option, filepath });
+                fail("compressed a file that changed");
+            } catch (RuntimeException e) {
+                assertTrue(e.getMessage().contains("changed while it was being compressed"));
+            }
+            assertTrue(!new File(filepath + ".hc").exists());
+        }
+
+        // longer than its reported length (0): it used to become an empty .hc
+        filepath = SchubsHelpers.linkTo("/proc/version");
+        try {
+            SchubsH.main(new String[] { "-b", filepath });
+            fail("compressed a file that changed");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().contains("changed while it was being compressed"));
+        }
+        assertTrue(!new File(filepath + ".hc").exists());
+    }
+
+    @Test
+    public void changedBetweenPassesTest() throws IOException {
+
+        // the second pass finds a byte the first never counted (same size),
+        // a file that grew, and a new byte in a file of one byte value
+        byte[] counted = SchubsHelpers.words(1 << 12);
+        byte[] newByte = counted.clone();
+        newByte[100] = '#';
+        byte[] grown = Arrays.copyOf(counted, counted.length + 1);
+        grown[counted.length] = 'a';
+        byte[] lone = new byte[1 << 12];
+        Arrays.fill(lone, (byte) 'a');
+        byte[] loneChanged = lone.clone();
+        loneChanged[7] = 'b';
+
+        // .hh and .hc (and .zh, which shares SchubsH's passes)
+        assertHuffmanRefuses(counted, newByte);
+        assertHuffmanRefuses(counted, grown);
+        assertHuffmanRefuses(lone, loneChanged);
+
+        // order-1 .hc (-1)
+        assertContextRefuses(counted, newByte);
+        assertContextRefuses(counted, grown);
+
+        // .hr (-r): a byte with no share of the range used to never end
+        assertRangeRefuses(counted, newByte);
+        assertRangeRefuses(counted, grown);
+    }
+
+    // the first pass of SchubsH counts "counted", the second finds "changed"
+    private void assertHuffmanRefuses(byte[] counted, byte[] changed) throws IOException {
+        int[] freq = new int[256];
+        int size = SchubsH.countFrequencies(SchubsHelpers.writeFile(counted), freq);
+        int[] length = HuffmanLengths.huffman(freq);
+        try {
+            SchubsH.encode(new BitWriter(new BinaryOut(new ByteArrayOutputStream())),
+                           SchubsHelpers.writeFile(changed), size, length, CanonicalHuffman.assignCodes(length));
+            fail("encoded a file that changed");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().contains("changed while it was being compressed"));
+        }
+    }
+
+    // the same for the order-1 layout
+    private void assertContextRefuses(byte[] counted, byte[] changed) throws IOException {
+        int[][] freq = new int[256][256];
+        long size = ContextHuffman.count(SchubsHelpers.writeFile(counted), freq);
+        try {
+            ContextHuffman.compress(SchubsHelpers.writeFile(changed), new BinaryOut(new ByteArrayOutputStream()),
+                                    ContextHuffman.MAX_GROUPS, 0, freq, (int) size);
+            fail("encoded a file that changed");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().contains("changed while it was being compressed"));
+        }
+    }
+
+    // the same for the static range model
+    private void assertRangeRefuses(byte[] counted, byte[] changed) throws IOException {
+        int[] counts = new int[256];
+        long size = RangeModel.count(SchubsHelpers.writeFile(counted), counts);
+        try {
+            RangeModel.compress(SchubsHelpers.writeFile(changed), new BinaryOut(new ByteArrayOutputStream()), counts, size);
+            fail("encoded a file that changed");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().contains("changed while it was being compressed"));
+        }
+    }
+
+    @Test
+    public void adaptivePipeTest() throws IOException {
+
+        // standard input to standard output, and back
+        byte[] original = SchubsHelpers.words(1 << 16);
+        byte[] piped = SchubsHelpers.pipe(original, SchubsH.class, "-a", "-");
+        assertArrayEquals(original, SchubsHelpers.pipe(piped, Deschubs.class, "-", "ha"));
+
+        // a pipe that pauses: what has arrived is written before it closes
+        assertTrue(SchubsHelpers.pausedPipe(original, SchubsH.class, "-a", "-").length > 0);
+    }
+
+    @Test
+    public void rangePipeTest() throws IOException {
+
+        // standard input to standard output, and back
+        byte[] original = SchubsHelpers.words(1 << 16);
+        byte[] piped = SchubsHelpers.pipe(original, SchubsH.class, "-a", "-r", "-");
+        assertArrayEquals(original, SchubsHelpers.pipe(piped, Deschubs.class, "-", "hr"));
+
+        // a pipe that pauses: the settled bytes are written before it closes
+        assertTrue(SchubsHelpers.pausedPipe(original, SchubsH.class, "-a", "-r", "-").length > 0);
+
+        // -r with an option of the Huffman layouts is refused, not ignored
+        String filepath = SchubsHelpers.writeFile(original);
+        for (String option : new String[] { "-c", "-b", "-4", "-p", "-1" }) {
+            SchubsH.main(new String[] { "-r", option, filepath });
+            assertTrue(!new File(filepath + ".hr").exists() && !new File(filepath + ".hc").exists());
+        }
+        SchubsH.main(new String[] { "-r", "-m", "11", filepath });
+        assertTrue(!new File(filepath + ".hr").exists());
+        deleteFile(filepath);
+    }
+
+    @Test
+    public void rangeFileTest() throws IOException {
+
+        // removes all ".hr" files from huffmanTests directory
+        cleanTestDir("hr");
+
+        String testDirPath =  "src" + File.separator + "files" + File.separator + "huffmanTests";
+        for (String relativeFilepath : new File(testDirPath).list()) {
+
+            String filepath = testDirPath + File.separator + relativeFilepath;
+            if (!filepath.endsWith(".txt"))
+                continue;
+
+            // static and adaptive model
+            String original = getFileContents(filepath);
+            for (String[] options : new String[][] { { "-r" }, { "-a", "-r" } }) {
+                SchubsH.main(ArrayUtils.add(options, filepath));
+                deleteFile(filepath);
+                Deschubs.main(new String[] { filepath + ".hr" });
+                assertEquals(original, getFileContents(filepath));
+            }
+        }
+        cleanTestDir("hr");
+
+        // runs of whitespace: no fraction of a bit left on the table
+        String javaCode = "src" + File.separator + "files" + File.separator + "huffmanArchiveTests" +
+                          File.separator + "folder2" + File.separator + "javaCode.txt";
+        File copy = File.createTempFile("javaCode", ".txt");
+        copy.deleteOnExit();
+        Files.write(copy.toPath(), Files.readAllBytes(Paths.get(javaCode)));
+        SchubsH.main(new String[] { copy.getPath() });
+        SchubsH.main(new String[] { "-r", copy.getPath() });
+        assertTrue(new File(copy.getPath() + ".hr").length() < new File(copy.getPath() + ".hh").length());
+        deleteFile(copy.getPath() + ".hh");
+        deleteFile(copy.getPath() + ".hr");
+        deleteFile(copy.getPath());
+
+        // 9 in 10 bytes are spaces: Huffman needs at least a bit for each
+        File file = File.createTempFile("range", ".txt");
+        file.deleteOnExit();
+        String filepath = file.getPath();
+        byte[] original = new byte[1 << 18];
+        Random random = new Random(7);
+        for (int i = 0; i < original.length; i++)
+            original[i] = (byte) (random.nextInt(10) == 0 ? 'a' + random.nextInt(26) : ' ');
+        Files.write(Paths.get(filepath), original);
+
+        SchubsH.main(new String[] { filepath });
+        long huffman = new File(filepath + ".hh").length();
+        deleteFile(filepath + ".hh");
+        for (String[] options : new String[][] { { "-r" }, { "-a", "-r" } }) {
+            SchubsH.main(ArrayUtils.add(options, filepath));
+            assertTrue(new File(filepath + ".hr").length() < huffman * 3 / 4);
+            deleteFile(filepath);
+            Deschubs.main(new String[] { filepath + ".hr" });
+            assertArrayEquals(original, Files.readAllBytes(Paths.get(filepath)));
+            deleteFile(filepath + ".hr");
+        }
+
+        // empty, one byte, one byte value only, every byte value
+        byte[] every = new byte[3 * 256];
+        for (int i = 0; i < every.length; i++)
+            every[i] = (byte) (i * 7);
+        byte[] run = new byte[100000];
+        Arrays.fill(run, (byte) 'x');
+        for (byte[] data : new byte[][] { new byte[0], { 42 }, run, every }) {
+            Files.write(Paths.get(filepath), data);
+            for (String[] options : new String[][] { { "-r" }, { "-a", "-r" } }) {
+                SchubsH.main(ArrayUtils.add(options, filepath));
+                if (data == run) assertTrue(new File(filepath + ".hr").length() < 1000);
+                deleteFile(filepath);
+                Deschubs.main(new String[] { filepath + ".hr" });
+                assertArrayEquals(data, Files.readAllBytes(Paths.get(filepath)));
+                deleteFile(filepath + ".hr");
+            }
+        }
+        deleteFile(filepath);
+    }
+
+    @Test
+    public void parallelFileTest() throws IOException {
+
+        // several chunks that do not end on a byte boundary of the output
+        File file = File.createTempFile("parallel", ".txt");
+        file.deleteOnExit();
+        String filepath = file.getPath();
+        byte[] original = new byte[3 * (1 << 20) + 12345];
+        for (int i = 0; i < original.length; i++)
+            original[i] = (byte) ('a' + (i * 31 % 97) % 26 + (i % 1000 == 0 ? 100 : 0));
+        Files.write(Paths.get(filepath), original);
+
+        for (String format : new String[] { "hh", "hc" }) {
+            String[] options = format.equals("hc") ? new String[] { "-c" } : new String[0];
+            String compressed = filepath + "." + format;
+
+            // serial and parallel compression give the same file
+            SchubsH.main(ArrayUtils.addAll(options, filepath));
+            byte[] serial = Files.readAllBytes(Paths.get(compressed));
+            SchubsH.main(ArrayUtils.addAll(ArrayUtils.addAll(options, "-p"), filepath));
+            assertArrayEquals(serial, Files.readAllBytes(Paths.get(compressed)));
+
+            deleteFile(filepath);
+            Deschubs.main(new String[] { compressed });
+            assertArrayEquals(original, Files.readAllBytes(Paths.get(filepath)));
+            deleteFile(compressed);
+        }
+        deleteFile(filepath);
+    }
 }
@@ -0,0 +1,196 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: SchubsHelpers
+ *  Dependencies: Deschubs.java
+ *
+ *  ------------- CLI -------------
+ *  Not a test class: helpers shared by the tests in src/test/java
+ *
+ * ------------- DESIGN -------------
+ *  Overview
+ *      Temporary input files (also links to files that read differently from
+ *      their reported length), generated text, round trips through a
+ *      compressor's main() and Deschubs, and runs of main() on a pipe, also
+ *      one that pauses without closing (output must not wait for more). A
+ *      compressor is given as its class (SchubsZ.class, ...) and its main is
+ *      called by reflection, so one helper serves every Schubs program.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.junit.Assume;
+
+public class SchubsHelpers {
+
+    // -------------------------- INPUT -------------------------- //
+
+    // write data to a temporary file and return its path
+    public static String writeFile(byte[] data) throws IOException {
+        File file = File.createTempFile("schubs", ".txt");
+        file.deleteOnExit();
+        Files.write(file.toPath(), data);
+        return file.getPath();
+    }
+
+    // words from a vocabulary that keeps growing, so a dictionary or window
+    // keeps finding new strings and old ones again
+    public static byte[] words(int bytes) {
+        byte[] data = new byte[bytes];
+        long x = 1;
+        for (int i = 0; i < bytes; ) {
+            x = x * 6364136223846793005L + 1442695040888963407L;
+            int word = (int) ((x >>> 33) % (50 + i / 64));
+            for (int j = 0; j < 2 + word % 7 && i < bytes; j++)
+                data[i++] = (byte) ('a' + (word * 31 + j * 7) % 26);
+            if (i < bytes) data[i++] = ' ';
+        }
+        return data;
+    }
+
+    // a link to a file whose reported length is not what reading it gives, as
+    // if it changed while it was being compressed: a sysfs file reports 4096
+    // bytes and holds a few, a procfs file reports 0 (skips the test where
+    // "target" cannot be read)
+    public static String linkTo(String target) throws IOException {
+        Path path = Paths.get(target);
+        Assume.assumeTrue(Files.isReadable(path));
+        File dir = Files.createTempDirectory("schubs").toFile();
+        dir.deleteOnExit();
+        File link = new File(dir, path.getFileName() + ".txt");
+        Files.createSymbolicLink(link.toPath(), path);
+        link.deleteOnExit();
+        return link.getPath();
+    }
+
+    // -------------------------- ROUND TRIPS -------------------------- //
+
+    // size of the file "program" (SchubsZ.class, ...) makes from data with
+    // options, as <file>.<extension>
+    public static long compressedSize(byte[] data, Class<?> program, String extension, String... options) throws IOException {
+        String filepath = writeFile(data);
+        run(program, append(options, filepath));
+        File compressed = new File(filepath + "." + extension);
+        long size = compressed.length();
+        compressed.delete();
+        new File(filepath).delete();
+        return size;
+    }
+
+    // compress data with "program" and options, expand the <file>.<extension>
+    // it makes with Deschubs and check it came back; returns the compressed size
+    public static long roundTrip(byte[] data, Class<?> program, String extension, String... options) throws IOException {
+        String filepath = writeFile(data);
+        run(program, append(options, filepath));
+        String compressed = filepath + "." + extension;
+        long size = new File(compressed).length();
+
+        assertTrue(new File(filepath).delete());
+        Deschubs.main(new String[] { compressed });
+        assertArrayEquals(data, Files.readAllBytes(Paths.get(filepath)));
+
+        new File(compressed).delete();
+        new File(filepath).delete();
+        return size;
+    }
+
+    // -------------------------- PIPES -------------------------- //
+
+    // run the main of "program" with "input" as standard input and return what
+    // it writes to standard output
+    public static byte[] pipe(byte[] input, Class<?> program, String... args) {
+        InputStream stdin = System.in;
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            System.setIn(new ByteArrayInputStream(input));
+            System.setOut(new PrintStream(output));
+            run(program, args);
+        } finally {
+            System.setIn(stdin);
+            System.setOut(stdout);
+        }
+        return output.toByteArray();
+    }
+
+    // run the main of "program" on a pipe that delivers "input" and then
+    // pauses without closing; returns what it wrote to standard output before
+    // the pipe closed, waiting up to 5 seconds for the first byte of it
+    public static byte[] pausedPipe(byte[] input, final Class<?> program, final String... args) throws IOException {
+        InputStream stdin = System.in;
+        PrintStream stdout = System.out;
+        PipedOutputStream feed = new PipedOutputStream();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final RuntimeException[] failure = new RuntimeException[1];
+        Thread thread = new Thread() {
+            public void run() {
+                try {
+                    SchubsHelpers.run(program, args);
+                } catch (RuntimeException e) {
+                    failure[0] = e;
+                }
+            }
+        };
+        byte[] before;
+        try {
+            System.setIn(new PipedInputStream(feed, input.length + 1));
+            System.setOut(new PrintStream(output));
+            thread.start();
+            feed.write(input);
+            feed.flush();
+            for (int wait = 0; wait < 500 && output.size() == 0; wait++)
+                Thread.sleep(10);
+            before = output.toByteArray();
+            feed.close();
+            thread.join();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } finally {
+            System.setIn(stdin);
+            System.setOut(stdout);
+        }
+        if (failure[0] != null) throw failure[0];
+        return before;
+    }
+
+    // -------------------------- HELPERS -------------------------- //
+
+    // call program.main(args), passing on what it throws
+    public static void run(Class<?> program, String... args) {
+        try {
+            program.getMethod("main", String[].class).invoke(null, (Object) args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // options followed by one more argument
+    public static String[] append(String[] options, String last) {
+        String[] args = Arrays.copyOf(options, options.length + 1);
+        args[options.length] = last;
+        return args;
+    }
+}
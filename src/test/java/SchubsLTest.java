@@ -7,7 +7,7 @@
  * 
  * ------------- CLASS INFO -------------
  *  Class: SchubsLTest
- *  Dependencies: BinaryIn.java BinaryOut.java TST.java Queue.java
+ *  Dependencies: BinaryIn.java BinaryOut.java TST.java Queue.java SchubsHelpers.java
  * 
  *  ------------- CLI -------------
  *  Note: "/" or "\" may vary depending on OS
@@ -31,6 +31,10 @@
  *      Our test harness covers
  *          - single files
  *          - multiple files
+ *          - standard input to standard output ("-"), also a pipe that pauses
+ *          - the block layout (-b), whole and one block at a time, and no
+ *            output left behind for a file that changes while it is read
+ *          - preset dictionaries (-t and -d)
  *  
  *  NOTE: if you do not want to keep compressed files, then uncomment the last 
  *  cleanTestDir("ll") in the last test
@@ -38,11 +42,17 @@
 
 import sedgewick.*;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -189,4 +199,263 @@ public class SchubsLTest {
         }
         //cleanTestDir("ll");
     }
+
+    // text with a slowly growing vocabulary, so the dictionary keeps filling
+    public String writeWordsFile(int bytes) throws IOException {
+        return SchubsHelpers.writeFile(SchubsHelpers.words(bytes));
+    }
+
+    @Test
+    public void variableWidthTest() throws IOException {
+
+        // removes all ".lw" files from lzwTests directory
+        cleanTestDir("lw");
+
+        String testDirPath =  "src" + File.separator + "files" + File.separator + "lzwTests";
+        for (String relativeFilepath : new File(testDirPath).list()) {
+
+            String filepath = testDirPath + File.separator + relativeFilepath;
+            if (!filepath.endsWith(".txt"))
+                continue;
+
+            String original = getFileContents(filepath);
+            SchubsL.main(new String[] { "-w", "16", filepath });
+            deleteFile(filepath);
+            Deschubs.main(new String[] { filepath + ".lw" });
+            assertEquals(original, getFileContents(filepath));
+        }
+        cleanTestDir("lw");
+
+        // 9 bits fills at once, 16 bits grows through every width
+        String filepath = writeWordsFile(1 << 20);
+        byte[] original = Files.readAllBytes(Paths.get(filepath));
+        long fixed = 0;
+        for (String width : new String[] { "9", "16", "20" }) {
+            SchubsL.main(new String[] { "-w", width, filepath });
+            deleteFile(filepath);
+            Deschubs.main(new String[] { filepath + ".lw" });
+            assertArrayEquals(original, Files.readAllBytes(Paths.get(filepath)));
+            if (width.equals("16")) {
+                SchubsL.main(new String[] { filepath });
+                fixed = new File(filepath + ".ll").length();
+                assertTrue(new File(filepath + ".lw").length() < fixed);
+                deleteFile(filepath + ".ll");
+            }
+            deleteFile(filepath + ".lw");
+        }
+        deleteFile(filepath);
+    }
+
+    // words, then bytes the first dictionary has never seen, then words
+    // again: a frozen dictionary is stale for the last two thirds
+    public String writeDriftFile() throws IOException {
+        String filepath = writeWordsFile(1 << 19);
+        byte[] text = Files.readAllBytes(Paths.get(filepath));
+        byte[] data = new byte[3 * text.length];
+        System.arraycopy(text, 0, data, 0, text.length);
+        for (int i = 0; i < text.length; i++)
+            data[text.length + i] = (byte) (128 + (i * 7 + i / 5) % 32);
+        for (int i = 0; i < text.length; i++)
+            data[2 * text.length + i] = (byte) (text[i] ^ 0x20);
+        Files.write(Paths.get(filepath), data);
+        return filepath;
+    }
+
+    @Test
+    public void resetTest() throws IOException {
+        driftTest("-r");
+    }
+
+    @Test
+    public void lruTest() throws IOException {
+        driftTest("-l");
+    }
+
+    // a full dictionary that adapts (-r or -l) beats a frozen one on drifting input
+    private void driftTest(String mode) throws IOException {
+        String filepath = writeDriftFile();
+        byte[] original = Files.readAllBytes(Paths.get(filepath));
+
+        SchubsL.main(new String[] { "-w", "12", filepath });
+        long frozen = new File(filepath + ".lw").length();
+        SchubsL.main(new String[] { "-w", "12", mode, filepath });
+        assertTrue(new File(filepath + ".lw").length() < frozen);
+
+        deleteFile(filepath);
+        Deschubs.main(new String[] { filepath + ".lw" });
+        assertArrayEquals(original, Files.readAllBytes(Paths.get(filepath)));
+
+        deleteFile(filepath + ".lw");
+        deleteFile(filepath);
+    }
+
+    @Test
+    public void presetTest() throws IOException {
+
+        // a dictionary trained on the first half of a text, then small messages
+        // from the second half
+        String text = writeWordsFile(1 << 16);
+        byte[] words = Files.readAllBytes(Paths.get(text));
+        File sample = File.createTempFile("lzw", ".txt");
+        sample.deleteOnExit();
+        Files.write(sample.toPath(), Arrays.copyOf(words, words.length / 2));
+        File dictionary = File.createTempFile("lzw", ".dict");
+        dictionary.deleteOnExit();
+        SchubsL.main(new String[] { "-w", "12", "-t", dictionary.getPath(), sample.getPath() });
+        assertEquals(12, LzwDictionary.read(dictionary.getPath()).width());
+
+        for (String[] options : new String[][] { {}, { "-r" }, { "-l" }, { "-b" } }) {
+            long plain = 0, primed = 0;
+            for (int from = words.length / 2; from + 300 <= words.length; from += 1000) {
+                String filepath = text + from;
+                byte[] original = Arrays.copyOfRange(words, from, from + 300);
+                Files.write(Paths.get(filepath), original);
+
+                String[] args = Arrays.copyOf(new String[] { "-w", "12" }, options.length + 3);
+                System.arraycopy(options, 0, args, 2, options.length);
+                args[args.length - 1] = filepath;
+                SchubsL.main(args);
+                plain += new File(filepath + ".lw").length();
+
+                args = Arrays.copyOf(new String[] { "-d", dictionary.getPath() }, options.length + 3);
+                System.arraycopy(options, 0, args, 2, options.length);
+                args[args.length - 1] = filepath;
+                SchubsL.main(args);
+                primed += new File(filepath + ".lw").length();
+
+                deleteFile(filepath);
+                Deschubs.main(new String[] { "-d", dictionary.getPath(), filepath + ".lw" });
+                assertArrayEquals(original, Files.readAllBytes(Paths.get(filepath)));
+                deleteFile(filepath + ".lw");
+                deleteFile(filepath);
+            }
+            assertTrue(3 * primed < 2 * plain);
+        }
+        deleteFile(text);
+    }
+
+    @Test
+    public void presetMissingTest() throws IOException {
+        String filepath = writeWordsFile(1 << 12);
+        File dictionary = File.createTempFile("lzw", ".dict");
+        dictionary.deleteOnExit();
+        try {
+            SchubsL.main(new String[] { "-w", "12", "-t", dictionary.getPath(), filepath });
+            SchubsL.main(new String[] { "-d", dictionary.getPath(), filepath });
+
+            // expanding with -d first: the dictionary must not stay for the next call
+            deleteFile(filepath);
+            Deschubs.main(new String[] { "-d", dictionary.getPath(), filepath + ".lw" });
+            deleteFile(filepath);
+            try {
+                Deschubs.main(new String[] { filepath + ".lw" });
+                fail("expanded a primed file without its dictionary");
+            } catch (RuntimeException e) {
+                assertTrue(e.getMessage().contains("preset dictionary"));
+            }
+        } finally {
+            deleteFile(filepath + ".lw");
+            deleteFile(filepath);
+            dictionary.delete();
+        }
+    }
+
+    @Test
+    public void presetLruTest() throws IOException {
+
+        // a 9 bit dictionary the preset nearly fills, a message that starts with
+        // a preset string, then bytes the preset has never seen: LRU has to
+        // evict preset entries in the same order on both sides
+        String text = writeWordsFile(1 << 14);
+        File dictionary = File.createTempFile("lzw", ".dict");
+        dictionary.deleteOnExit();
+        SchubsL.main(new String[] { "-w", "9", "-t", dictionary.getPath(), text });
+
+        byte[] words = Files.readAllBytes(Paths.get(text));
+        byte[] original = Arrays.copyOf(words, 1 << 14);
+        for (int i = 10; i < original.length; i++)
+            original[i] = (byte) (128 + (i * 7 + i / 5) % 32);
+        Files.write(Paths.get(text), original);
+
+        SchubsL.main(new String[] { "-d", dictionary.getPath(), "-l", text });
+        deleteFile(text);
+        Deschubs.main(new String[] { "-d", dictionary.getPath(), text + ".lw" });
+        assertArrayEquals(original, Files.readAllBytes(Paths.get(text)));
+
+        deleteFile(text + ".lw");
+        deleteFile(text);
+    }
+
+    @Test
+    public void pipeTest() throws IOException {
+
+        // several input buffers, so matches run across buffer boundaries
+        String filepath = writeWordsFile(1 << 18);
+        byte[] original = Files.readAllBytes(Paths.get(filepath));
+        String[][] options = { {}, { "-w", "16", "-r" } };
+        String[] extensions = { "ll", "lw" };
+        for (int k = 0; k < options.length; k++) {
+            String[] args = Arrays.copyOf(options[k], options[k].length + 1);
+            args[args.length - 1] = "-";
+            byte[] piped = SchubsHelpers.pipe(original, SchubsL.class, args);
+
+            // the same bytes as compressing the file
+            args[args.length - 1] = filepath;
+            SchubsL.main(args);
+            String compressed = filepath + "." + extensions[k];
+            assertArrayEquals(Files.readAllBytes(Paths.get(compressed)), piped);
+            deleteFile(compressed);
+
+            assertArrayEquals(original, SchubsHelpers.pipe(piped, Deschubs.class, "-", extensions[k]));
+
+            // a pipe that pauses: what has arrived is written before it closes
+            args[args.length - 1] = "-";
+            assertTrue(SchubsHelpers.pausedPipe(original, SchubsL.class, args).length > 0);
+        }
+        deleteFile(filepath);
+    }
+
+    @Test
+    public void changedFileTest() throws IOException {
+
+        // files that read shorter and longer than their reported length: the
+        // blocks do not add up, and the output is deleted rather than truncated
+        for (String target : new String[] { "/sys/devices/system/cpu/online", "/proc/version" }) {
+            String filepath = SchubsHelpers.linkTo(target);
+            try {
+                SchubsL.main(new String[] { "-b", filepath });
+                fail("compressed a file that changed");
+            } catch (RuntimeException e) {
+                assertTrue(e.getMessage().contains("changed while it was being compressed"));
+            }
+            assertTrue(!new File(filepath + ".lw").exists());
+        }
+    }
+
+    @Test
+    public void blockTest() throws IOException {
+
+        // two full blocks and a short one
+        String filepath = writeWordsFile(2 * LzwBlocks.BLOCK_SIZE + 12345);
+        byte[] original = Files.readAllBytes(Paths.get(filepath));
+        for (String[] options : new String[][] { { "-b" }, { "-w", "12", "-r", "-b" }, { "-w", "12", "-l", "-b" } }) {
+            String[] args = Arrays.copyOf(options, options.length + 1);
+            args[args.length - 1] = filepath;
+            SchubsL.main(args);
+            assertEquals(3, LzwBlocks.blockCount(filepath + ".lw"));
+
+            // any block on its own
+            for (int i = 0; i < 3; i++) {
+                int from = i * LzwBlocks.BLOCK_SIZE;
+                int to = Math.min(original.length, from + LzwBlocks.BLOCK_SIZE);
+                assertArrayEquals(Arrays.copyOfRange(original, from, to), LzwBlocks.readBlock(filepath + ".lw", i));
+            }
+
+            deleteFile(filepath);
+            Deschubs.main(new String[] { filepath + ".lw" });
+            assertArrayEquals(original, Files.readAllBytes(Paths.get(filepath)));
+            deleteFile(filepath + ".lw");
+        }
+        deleteFile(filepath);
+    }
 }
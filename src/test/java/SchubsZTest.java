@@ -0,0 +1,174 @@
+/**
+ * ------------- HEADER -------------
+ *  Author: Brighton Mica
+ *  Date: December 6, 2019
+ *  Prof: Dr. Reeves (Software Engineering 2)
+ *
+ * ------------- CLASS INFO -------------
+ *  Class: SchubsZTest
+ *  Dependencies: SchubsZ.java Deschubs.java SchubsHelpers.java
+ *
+ *  ------------- CLI -------------
+ *  Note: "/" or "\" may vary depending on OS
+ *
+ *  To Test
+ *      > mvn test
+ *      Note: test files can be found in src/files/
+ *
+ * ------------- DESIGN -------------
+ *  Overview/Process
+ *      Each test writes its input to a temporary file, compresses it with
+ *      SchubsZ, deletes it, expands the .lz (or .lh) file with Deschubs and compares
+ *      the result with the original bytes.
+ *
+ *  Tests
+ *      Our test harness covers
+ *          - the lzwTests text files
+ *          - every window size and the smallest and a large search depth
+ *          - inputs of several windows, so matches cross a window slide
+ *          - runs (matches that overlap the bytes they copy), bytes with no
+ *            matches, and empty and one byte files
+ *          - Huffman coded blocks (-h): many blocks, literal only blocks, long
+ *            runs, and an END only last block
+ *          - each parse level (-l), which must all expand to the same bytes,
+ *            the higher ones to fewer
+ *          - standard input to standard output ("-")
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+
+public class SchubsZTest {
+
+    // -------------------------- HELPER FUNCTIONS -------------------------- //
+
+    // compress data with options, expand it again and check it came back;
+    // returns the compressed size
+    private static long roundTrip(byte[] data, String... options) throws IOException {
+        String extension = Arrays.asList(options).contains("-h") ? "lh" : "lz";
+        return SchubsHelpers.roundTrip(data, SchubsZ.class, extension, options);
+    }
+
+    // -------------------------- TESTS -------------------------- //
+
+    @Test
+    public void textFileTest() throws IOException {
+        String testDirPath = "src" + File.separator + "files" + File.separator + "lzwTests";
+        for (String name : new String[] { "test1.txt", "test2.txt", "test3.txt" }) {
+            byte[] data = Files.readAllBytes(Paths.get(testDirPath, name));
+            roundTrip(data);
+            roundTrip(data, "-w", "20", "-c", "1");
+            // the code headers only pay off past a few dozen bytes
+            long huffman = roundTrip(data, "-h");
+            if (data.length > 1000) assertTrue(huffman < roundTrip(data));
+        }
+    }
+
+    @Test
+    public void windowTest() throws IOException {
+
+        // three windows of the largest size, so the buffer slides several times
+        byte[] data = SchubsHelpers.words(3 << 20);
+        for (int bits = SchubsZ.MIN_WINDOW_BITS; bits <= SchubsZ.MAX_WINDOW_BITS; bits++)
+            assertTrue(roundTrip(data, "-w", "" + bits) < data.length / 2);
+
+        // a deeper search finds longer matches in this text
+        assertTrue(roundTrip(data, "-c", "256") <= roundTrip(data, "-c", "1"));
+    }
+
+    @Test
+    public void huffmanTest() throws IOException {
+
+        // many blocks, with every window size
+        byte[] data = SchubsHelpers.words(3 << 20);
+        long plain = roundTrip(data);
+        for (int bits = SchubsZ.MIN_WINDOW_BITS; bits <= SchubsZ.MAX_WINDOW_BITS; bits++)
+            assertTrue(roundTrip(data, "-h", "-w", "" + bits) < plain);
+
+        // a block of literals only, a block of one long run, and an empty last block
+        byte[] noise = new byte[2 * LzHuffman.BLOCK_TOKENS];
+        new Random(7).nextBytes(noise);
+        assertTrue(roundTrip(noise, "-h") < noise.length + 1024);
+        byte[] run = new byte[1 << 20];
+        Arrays.fill(run, (byte) 'x');
+        assertTrue(roundTrip(run, "-h") < run.length / 1000);
+        roundTrip(new byte[0], "-h");
+        roundTrip(new byte[] { 42 }, "-h");
+    }
+
+    @Test
+    public void levelTest() throws IOException {
+        byte[] text = Files.readAllBytes(Paths.get("src", "files", "huffmanArchiveTests", "folder1", "aChristmasCarol.txt"));
+        byte[] data = SchubsHelpers.words(1 << 20);
+        long[] plain = new long[LzParser.OPTIMAL + 1];
+        long[] huffman = new long[LzParser.OPTIMAL + 1];
+        long[] wordsHuffman = new long[LzParser.OPTIMAL + 1];
+        for (int level = LzParser.GREEDY; level <= LzParser.OPTIMAL; level++) {
+            plain[level] = roundTrip(text, "-l", "" + level);
+            huffman[level] = roundTrip(text, "-l", "" + level, "-h");
+
+            // many blocks and chunks, and a window slide
+            wordsHuffman[level] = roundTrip(data, "-l", "" + level, "-h", "-w", "18");
+            roundTrip(data, "-l", "" + level);
+
+            roundTrip(new byte[0], "-l", "" + level);
+            roundTrip(new byte[] { 42 }, "-l", "" + level, "-h");
+            roundTrip("abcabcabc".getBytes(), "-l", "" + level);
+            byte[] run = new byte[3 * LzParser.OPT_CHUNK + 1];
+            Arrays.fill(run, (byte) 'x');
+            assertTrue(roundTrip(run, "-l", "" + level) < run.length / 50);
+        }
+        assertTrue(plain[LzParser.LAZY] < plain[LzParser.GREEDY]);
+        assertTrue(plain[LzParser.OPTIMAL] < plain[LzParser.LAZY]);
+        assertTrue(huffman[LzParser.LAZY] < huffman[LzParser.GREEDY]);
+        assertTrue(huffman[LzParser.OPTIMAL] < huffman[LzParser.LAZY]);
+
+        // these words match almost everywhere, which leaves lazy nothing to gain
+        assertTrue(wordsHuffman[LzParser.OPTIMAL] < wordsHuffman[LzParser.GREEDY]);
+    }
+
+    @Test
+    public void edgeCaseTest() throws IOException {
+        roundTrip(new byte[0]);
+        roundTrip(new byte[] { 42 });
+        roundTrip("abcabcabc".getBytes());
+
+        // after its first byte a run is all overlapping matches (distance 1)
+        byte[] run = new byte[1 << 18];
+        Arrays.fill(run, (byte) 'x');
+        assertTrue(roundTrip(run) < run.length / 50);
+
+        // random bytes have no matches: every byte is a 9 bit literal
+        byte[] noise = new byte[1 << 18];
+        new Random(7).nextBytes(noise);
+        assertTrue(roundTrip(noise) <= noise.length * 9 / 8 + 8);
+    }
+
+    @Test
+    public void pipeTest() throws IOException {
+        byte[] original = SchubsHelpers.words(1 << 18);
+        byte[] piped = SchubsHelpers.pipe(original, SchubsZ.class, "-w", "17", "-");
+
+        // the same bytes as compressing the file
+        String filepath = SchubsHelpers.writeFile(original);
+        SchubsZ.main(new String[] { "-w", "17", filepath });
+        assertArrayEquals(Files.readAllBytes(Paths.get(filepath + ".lz")), piped);
+        new File(filepath + ".lz").delete();
+        new File(filepath).delete();
+
+        assertArrayEquals(original, SchubsHelpers.pipe(piped, Deschubs.class, "-", "lz"));
+
+        piped = SchubsHelpers.pipe(original, SchubsZ.class, "-h", "-");
+        assertArrayEquals(original, SchubsHelpers.pipe(piped, Deschubs.class, "-", "lh"));
+    }
+}